@@ -0,0 +1,112 @@
+package benchmark;
+
+import algorithm.*;
+import model.BallotProfile;
+import model.Race;
+import model.Result;
+import model.vote.RankedVote;
+import model.vote.Vote;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each evaluation algorithm, over every culture, mix of ballots, and size of election.
+ * <br>
+ * Algorithms evaluate a {@link BallotProfile} collected once per trial,
+ * so that {@link AlgorithmBenchmark#collectProfile()} measures the cost of collecting it separately.
+ * Narrow the sweep with JMH's <code>-p</code> option, e.g. <code>-p voters=1000 -p candidates=5,50</code>.
+ * Kemeny-Young's exact search grows factorially with candidates, so large races settle for the best ranking found
+ * within {@link AlgorithmBenchmark#KEMENY_YOUNG_MILLIS}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class AlgorithmBenchmark {
+
+    private static final long SEED = 17L;
+    private static final long KEMENY_YOUNG_MILLIS = 1_000;
+
+    @Param({"IMPARTIAL", "MALLOWS", "FRIEND_GROUPS"})
+    public Culture culture;
+
+    @Param({"RANKED", "WEIGHTED", "SHADOW"})
+    public BallotMix mix;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int voters;
+
+    @Param({"5", "50", "500"})
+    public int candidates;
+
+    /** The most candidates that any voter ranks or rates */
+    @Param({"10"})
+    public int depth;
+
+    @Param({"0.8"})
+    public double dispersion;
+
+    private SyntheticElection election;
+    private BallotProfile<Vote> profile;
+    private BallotProfile<RankedVote> rankedProfile;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        election = SyntheticElection.generate(culture, mix, voters, candidates, depth, dispersion, SEED);
+        profile = BallotProfile.of(election.votes());
+        rankedProfile = BallotProfile.of(election.votes());
+    }
+
+    @Benchmark
+    public BallotProfile<Vote> collectProfile() {
+        return BallotProfile.of(election.votes());
+    }
+
+    @Benchmark
+    public Result weightedRunoff() {
+        return new WeightedRunoff(race()).evaluate(profile);
+    }
+
+    @Benchmark
+    public Result singleTransferableVote() {
+        return new SingleTransferableVote(race(), 3).evaluate(profile);
+    }
+
+    @Benchmark
+    public Result singleChoice() {
+        return new SingleChoice(race()).evaluate(profile);
+    }
+
+    @Benchmark
+    public Result copeland() {
+        return new CopelandMethod(race()).evaluate(rankedProfile);
+    }
+
+    @Benchmark
+    public Result schulze() {
+        return new Schulze(race()).evaluate(rankedProfile);
+    }
+
+    @Benchmark
+    public Result rankedPairs() {
+        return new RankedPairs(race()).evaluate(rankedProfile);
+    }
+
+    @Benchmark
+    public Result kemenyYoung() {
+        KemenyYoung kemenyYoung = new KemenyYoung(race());
+        kemenyYoung.setCancellation(CancellationToken.withTimeout(Duration.ofMillis(KEMENY_YOUNG_MILLIS)));
+        return kemenyYoung.evaluate(rankedProfile);
+    }
+
+    @Benchmark
+    public Result smithSetFirst() {
+        return SmithSet.first(WeightedRunoff::new).apply(race()).evaluate(profile);
+    }
+
+    private Race race() { return election.race(); }
+}
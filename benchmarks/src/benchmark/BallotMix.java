@@ -0,0 +1,60 @@
+package benchmark;
+
+import model.Option;
+import model.vote.RankedVote;
+import model.vote.SimpleRankingVote;
+import model.vote.WeightedVote;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/** The kinds of votes that voters cast with their preferences */
+public enum BallotMix {
+    /** Every voter ranks their favourites */
+    RANKED {
+        @Override
+        void cast(String voterName, List<Option> preferences, Option previousWinner, SplittableRandom random, Collection<RankedVote> votes) {
+            SimpleRankingVote vote = new SimpleRankingVote(voterName);
+            vote.select(preferences);
+            votes.add(vote);
+        }
+    },
+    /** Every voter rates their favourites, with fewer points for each rank down */
+    WEIGHTED {
+        @Override
+        void cast(String voterName, List<Option> preferences, Option previousWinner, SplittableRandom random, Collection<RankedVote> votes) {
+            votes.add(weighted(voterName, preferences));
+        }
+    },
+    /** Rated votes, along with the unspent weight of some voters' votes in a previous election, as shadow votes */
+    SHADOW {
+        private static final double CARRIED_OVER = 0.25; // the chance that a voter's previous vote left unspent weight
+
+        @Override
+        void cast(String voterName, List<Option> preferences, Option previousWinner, SplittableRandom random, Collection<RankedVote> votes) {
+            WeightedVote vote = weighted(voterName, preferences);
+            votes.add(vote);
+            if (random.nextDouble() < CARRIED_OVER) {
+                WeightedVote shadow = WeightedVote.unspentWeight(vote, previousWinner);
+                if (!shadow.getRankings().isEmpty()) {
+                    votes.add(shadow);
+                }
+            }
+        }
+    };
+
+    /**
+     * Add the votes cast by one voter.
+     *
+     * @param preferences the voter's favourite candidates, most preferred first
+     * @param previousWinner the winner of the previous election, for voters whose votes carry over
+     */
+    abstract void cast(String voterName, List<Option> preferences, Option previousWinner, SplittableRandom random, Collection<RankedVote> votes);
+
+    private static WeightedVote weighted(String voterName, List<Option> preferences) {
+        SimpleRankingVote ranking = new SimpleRankingVote(voterName);
+        ranking.select(preferences);
+        return WeightedVote.rateDescending(ranking);
+    }
+}
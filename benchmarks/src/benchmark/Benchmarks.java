@@ -0,0 +1,28 @@
+package benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs JMH with its usual command line options, always measuring allocation rates with the GC profiler.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean profilingGc = false;
+        for (int i = 0; i + 1 < arguments.size(); i++) {
+            profilingGc |= arguments.get(i).equals("-prof") && arguments.get(i + 1).startsWith("gc");
+        }
+        if (!profilingGc) {
+            arguments.add("-prof");
+            arguments.add("gc");
+        }
+        Main.main(arguments.toArray(String[]::new));
+    }
+}
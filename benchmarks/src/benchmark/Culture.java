@@ -0,0 +1,27 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+/** The models of voters' preferences that elections are generated from */
+public enum Culture {
+    IMPARTIAL {
+        @Override
+        Electorate electorate(int candidates, int voters, double dispersion, SplittableRandom random) {
+            return new ImpartialCulture(candidates);
+        }
+    },
+    MALLOWS {
+        @Override
+        Electorate electorate(int candidates, int voters, double dispersion, SplittableRandom random) {
+            return new Mallows(candidates, dispersion);
+        }
+    },
+    FRIEND_GROUPS {
+        @Override
+        Electorate electorate(int candidates, int voters, double dispersion, SplittableRandom random) {
+            return new FriendGroups(candidates, voters, dispersion, random);
+        }
+    };
+
+    abstract Electorate electorate(int candidates, int voters, double dispersion, SplittableRandom random);
+}
@@ -0,0 +1,30 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * A random model of voters' preferences among candidates, identified by ids <code>0</code> to <code>candidates - 1</code>.
+ * <br>
+ * Electorates keep scratch state between samples, so each must only be sampled from one thread.
+ */
+public abstract class Electorate {
+
+    protected final int candidates;
+
+    protected Electorate(int candidates) {
+        if (candidates < 1) {
+            throw new IllegalArgumentException("Candidates must be positive");
+        }
+        this.candidates = candidates;
+    }
+
+    public int candidates() { return candidates; }
+
+    /**
+     * Sample one voter's favourite candidates.
+     *
+     * @param preferences filled with distinct candidate ids, most preferred first;
+     *                    no longer than the number of candidates
+     */
+    public abstract void sample(SplittableRandom random, int[] preferences);
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Correlated preferences, as among a server of friends: voters form small groups that each share a few favourites,
+ * and otherwise follow a broad {@link Mallows} consensus.
+ * <br>
+ * Each group's favourites are drawn from a more dispersed consensus than its members,
+ * so groups disagree with one another more than members of a group do.
+ * A member ranks their group's favourites first, in random order, unless they're a maverick.
+ */
+public class FriendGroups extends Electorate {
+
+    public static final int GROUP_SIZE = 8;
+    private static final int FAVOURITES = 3;
+    private static final double MAVERICKS = 0.2; // the chance that a member ignores their group
+
+    private final Mallows consensus;
+    private final int[][] favourites; // by group
+
+    /** @param dispersion of the consensus that members follow; see {@link Mallows#Mallows(int[], double)} */
+    public FriendGroups(int candidates, int voters, double dispersion, SplittableRandom random) {
+        super(candidates);
+        this.consensus = new Mallows(candidates, dispersion);
+
+        Mallows tastes = new Mallows(candidates, Math.sqrt(dispersion));
+        this.favourites = new int[Math.max(1, voters / GROUP_SIZE)][Math.min(FAVOURITES, candidates)];
+        for (int[] group : favourites) {
+            tastes.sample(random, group);
+        }
+    }
+
+    @Override
+    public void sample(SplittableRandom random, int[] preferences) {
+        if (random.nextDouble() < MAVERICKS) {
+            consensus.sample(random, preferences);
+            return;
+        }
+
+        int[] group = favourites[random.nextInt(favourites.length)];
+        int shared = Math.min(group.length, preferences.length);
+        for (int rank = 0; rank < shared; rank++) {
+            int swap = rank + random.nextInt(group.length - rank);
+            int candidate = group[swap];
+            group[swap] = group[rank];
+            group[rank] = candidate;
+            preferences[rank] = candidate;
+        }
+        consensus.complete(random, preferences, shared);
+    }
+}
@@ -0,0 +1,29 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+/** Every ordering of the candidates is equally likely, independently for each voter */
+public class ImpartialCulture extends Electorate {
+
+    private final int[] shuffled; // scratch: a permutation of every candidate
+
+    public ImpartialCulture(int candidates) {
+        super(candidates);
+        this.shuffled = new int[candidates];
+        for (int candidate = 0; candidate < candidates; candidate++) {
+            shuffled[candidate] = candidate;
+        }
+    }
+
+    /** Shuffles only as many candidates as are ranked; any permutation left over from the last sample is as good a start as any */
+    @Override
+    public void sample(SplittableRandom random, int[] preferences) {
+        for (int rank = 0; rank < preferences.length; rank++) {
+            int swap = rank + random.nextInt(candidates - rank);
+            int candidate = shuffled[swap];
+            shuffled[swap] = shuffled[rank];
+            shuffled[rank] = candidate;
+            preferences[rank] = candidate;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * The <a href="https://en.wikipedia.org/wiki/Mallows%27s_model">Mallows model</a>:
+ * voters' orderings scatter around a consensus ordering,
+ * with an ordering's probability falling geometrically in its distance from the consensus.
+ * <br>
+ * Orderings are sampled one rank at a time by repeated selection:
+ * the candidate at each rank is the <code>j</code>th of the remaining candidates, in consensus order,
+ * with probability proportional to <code>dispersion<sup>j</sup></code>.
+ * Each pick scans the consensus past the candidates already picked, to its offset among the rest,
+ * so sampling a voter's top <code>d</code> candidates takes about <code>O(d<sup>2</sup>)</code> steps while offsets stay small,
+ * and <code>O(d&middot;k)</code> at a dispersion of <code>1.0</code>, where they're uniform over the remaining candidates.
+ */
+public class Mallows extends Electorate {
+
+    private final int[] consensus; // candidate ids, most preferred first
+    private final double dispersion;
+    private final double logDispersion;
+    private final int[] pickedIn; // scratch: the sample in which each candidate was last picked
+    private int sample;
+
+    /** @param dispersion <code>0.0</code> for every voter to agree with the consensus; <code>1.0</code> for impartial culture */
+    public Mallows(int[] consensus, double dispersion) {
+        super(consensus.length);
+        if (dispersion < 0.0 || dispersion > 1.0) {
+            throw new IllegalArgumentException("Dispersion must be between 0.0 and 1.0");
+        }
+        this.consensus = consensus.clone();
+        this.dispersion = dispersion;
+        this.logDispersion = Math.log(dispersion);
+        this.pickedIn = new int[candidates];
+    }
+
+    /** A consensus ranking candidates in order of id */
+    public Mallows(int candidates, double dispersion) {
+        this(identity(candidates), dispersion);
+    }
+
+    @Override
+    public void sample(SplittableRandom random, int[] preferences) {
+        complete(random, preferences, 0);
+    }
+
+    /**
+     * Sample the remainder of one voter's favourite candidates, given their first few.
+     *
+     * @param ranked the number of candidates already at the front of <code>preferences</code>
+     */
+    void complete(SplittableRandom random, int[] preferences, int ranked) {
+        sample++;
+        for (int rank = 0; rank < ranked; rank++) {
+            pickedIn[preferences[rank]] = sample;
+        }
+        for (int rank = ranked; rank < preferences.length; rank++) {
+            preferences[rank] = pick(offset(random, candidates - rank));
+        }
+    }
+
+    /** @return the position among the remaining candidates of the next one picked */
+    private int offset(SplittableRandom random, int remaining) {
+        if (dispersion == 1.0) {
+            return random.nextInt(remaining);
+        }
+        if (dispersion == 0.0) {
+            return 0;
+        }
+        // invert the cumulative distribution of a geometric distribution truncated to [0, remaining)
+        double truncation = 1.0 - Math.pow(dispersion, remaining);
+        int offset = (int) (Math.log(1.0 - random.nextDouble() * truncation) / logDispersion);
+        return Math.min(offset, remaining - 1);
+    }
+
+    private int pick(int offset) {
+        for (int candidate : consensus) {
+            if (pickedIn[candidate] == sample) { continue; }
+            if (offset-- == 0) {
+                pickedIn[candidate] = sample;
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No candidates remain");
+    }
+
+    private static int[] identity(int candidates) {
+        int[] ids = new int[candidates];
+        for (int candidate = 0; candidate < candidates; candidate++) {
+            ids[candidate] = candidate;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,43 @@
+package benchmark;
+
+import model.Option;
+import model.Race;
+import model.vote.RankedVote;
+
+import java.util.*;
+
+/**
+ * A race between generated candidates, and the votes of a generated electorate.
+ *
+ * @param options the candidates, in order of id
+ */
+public record SyntheticElection(Race race, List<Option> options, Set<RankedVote> votes) {
+
+    /**
+     * @param depth the most candidates that any voter ranks or rates
+     * @param dispersion how far voters stray from the consensus, for cultures that have one
+     * @param seed the same seed generates the same election
+     */
+    public static SyntheticElection generate(Culture culture, BallotMix mix, int voters, int candidates,
+                                             int depth, double dispersion, long seed) {
+        List<Option> options = new ArrayList<>(candidates);
+        for (int candidate = 0; candidate < candidates; candidate++) {
+            options.add(new Option("Candidate " + candidate));
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        Electorate electorate = culture.electorate(candidates, voters, dispersion, random);
+        int[] preferences = new int[Math.min(depth, candidates)];
+        Set<RankedVote> votes = new HashSet<>();
+        for (int voter = 0; voter < voters; voter++) {
+            electorate.sample(random, preferences);
+            List<Option> ranked = new ArrayList<>(preferences.length);
+            for (int candidate : preferences) {
+                ranked.add(options.get(candidate));
+            }
+            mix.cast("Voter " + voter, ranked, options.get(0), random, votes);
+        }
+
+        return new SyntheticElection(new Race("Benchmark", options), options, votes);
+    }
+}
@@ -0,0 +1,61 @@
+package benchmark;
+
+import algorithm.MarginOfVictory;
+import algorithm.TallyKernels;
+import algorithm.WeightedRunoff;
+import model.BallotProfile;
+import model.vote.Vote;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a {@link WeightedRunoff}'s margin of victory search, which scores rated votes that rate every candidate
+ * by summing their packed ratings with {@link TallyKernels}, on the Vector API and as plain loops.
+ * Races are sized so that their ratings are packed.
+ * The fork enables the <code>jdk.incubator.vector</code> module, so both are available
+ * if the parent was installed with its <code>vector</code> profile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms8g", "-Xmx8g", "--add-modules=jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class TallyKernelBenchmark {
+
+    private static final long SEED = 17L;
+
+    @Param({"SCALAR", "VECTOR"})
+    public String kernels;
+
+    @Param({"IMPARTIAL", "MALLOWS"})
+    public Culture culture;
+
+    @Param({"1000", "10000"})
+    public int voters;
+
+    @Param({"5", "20", "50"})
+    public int candidates;
+
+    private WeightedRunoff runoff;
+
+    @Setup(Level.Trial)
+    public void count() {
+        SyntheticElection election = SyntheticElection.generate(culture, BallotMix.WEIGHTED, voters, candidates, candidates, 0.8, SEED);
+        TallyKernels chosen = kernels.equals("VECTOR") ? TallyKernels.preferred() : TallyKernels.scalar();
+        if (kernels.equals("VECTOR") && !chosen.isVectorized()) {
+            throw new IllegalStateException("The Vector API kernels aren't available; install the parent with -Pvector");
+        }
+        runoff = new WeightedRunoff(election.race());
+        runoff.setTraced(false);
+        runoff.setKernels(chosen);
+        BallotProfile<Vote> profile = BallotProfile.of(election.votes());
+        runoff.evaluate(profile);
+    }
+
+    @Benchmark
+    public MarginOfVictory marginOfVictory() {
+        return runoff.marginOfVictory();
+    }
+}
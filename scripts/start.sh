@@ -1,3 +1,3 @@
 #!/bin/bash
 
-exec java -jar /home/bot/Run/pollster.jar $(cat /home/bot/Run/token.txt)
+exec java --add-modules jdk.incubator.vector -jar /home/bot/Run/pollster.jar $(cat /home/bot/Run/token.txt)
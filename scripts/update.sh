@@ -12,7 +12,7 @@ if git pull origin master; then
 
     if [ "$BEFORE" != "$AFTER" ]; then
         echo "Changes detected, rebuilding..."
-        if mvn package -q; then
+        if mvn -Pvector package -q; then
             cp "$REPO_DIR/target/pollster.jar" "$RUN_DIR/pollster.jar"
             echo "Rebuild complete."
         else
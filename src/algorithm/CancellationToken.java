@@ -0,0 +1,55 @@
+package algorithm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+
+/**
+ * Asks an evaluation to stop early and settle for the best answer it has found so far.
+ * A token is cancelled once {@link CancellationToken#cancel()} is called, or once its deadline passes.
+ * <br>
+ * Cancellation is cooperative: algorithms that can settle for a provisional answer check the token in their inner loops,
+ * and others ignore it. A cancelled token stays cancelled.
+ */
+public final class CancellationToken {
+
+    /** A token that is never cancelled */
+    public static final CancellationToken NONE = new CancellationToken(false, 0L);
+
+    private final boolean hasDeadline;
+    private final long deadline; // System.nanoTime() at which the token is cancelled, if it has a deadline
+    private volatile boolean cancelled;
+
+    /** A token that is only cancelled by {@link CancellationToken#cancel()} */
+    public CancellationToken() {
+        this(false, 0L);
+    }
+
+    private CancellationToken(boolean hasDeadline, long deadline) {
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+    }
+
+    /** @return a token that is cancelled once the given time has passed, or when {@link CancellationToken#cancel()} is called */
+    @NotNull
+    public static CancellationToken withTimeout(@NotNull Duration timeout) {
+        return new CancellationToken(true, System.nanoTime() + timeout.toNanos());
+    }
+
+    public void cancel() {
+        if (this == NONE) {
+            throw new UnsupportedOperationException("CancellationToken.NONE can't be cancelled");
+        }
+        cancelled = true;
+    }
+
+    /** Cheap enough to call in an inner loop, though not in the innermost */
+    public boolean isCancelled() {
+        if (cancelled) { return true; }
+        if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            cancelled = true;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,212 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.Option;
+import model.vote.RankedVote;
+import model.vote.SimpleRankingVote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounds the {@link MarginOfVictory margin of victory} of a {@link CopelandMethod} count, from its head-to-head counts.
+ * Scores are kept doubled, so that a draw is worth a whole point.
+ * <br>
+ * A changed ballot moves each head-to-head margin by at most two votes, so the lower bound is the fewest ballots
+ * for which some rival could, by winning or drawing every matchup within reach, draw level with the winner
+ * losing every matchup within reach.
+ * <br>
+ * The upper bound is found by construction: ballots preferring the winner over a rival
+ * are rewritten to rank the rival first and leave the winner off, until the winners change.
+ * It needs the ballots themselves, so it isn't found for a count that streamed them.
+ */
+class CopelandMargin {
+
+    private static final int RIVALS = 3; // highest-scoring rivals to try to elect, to find an upper bound
+
+    private final PairwiseMatrix headToHeads;
+    private final BitSet candidates;
+    private final BallotProfile<RankedVote> profile;
+
+    /** @param profile the ballots counted, or <code>null</code> if they were streamed */
+    CopelandMargin(PairwiseMatrix headToHeads, BitSet candidates, BallotProfile<RankedVote> profile) {
+        this.headToHeads = headToHeads;
+        this.candidates = candidates;
+        this.profile = profile;
+    }
+
+    MarginOfVictory find() {
+        if (candidates.cardinality() < 2) {
+            return new MarginOfVictory(MarginOfVictory.UNKNOWN, MarginOfVictory.UNKNOWN); // no preferences could change it
+        }
+
+        int[] scores = scores(headToHeads);
+        BitSet winners = winners(scores);
+        int winner = winners.nextSetBit(0);
+        int upper = profile == null ? MarginOfVictory.UNKNOWN : upperBound(winner, scores, winners);
+        if (winners.cardinality() > 1) {
+            return new MarginOfVictory(Math.min(1, upper), upper); // a tie might be broken by any ballot
+        }
+
+        int lower = MarginOfVictory.UNKNOWN;
+        for (int rival = candidates.nextSetBit(0); rival >= 0; rival = candidates.nextSetBit(rival + 1)) {
+            if (rival != winner) {
+                lower = Math.min(lower, lowerBound(winner, rival, scores, Math.min(lower, upper)));
+            }
+        }
+        return new MarginOfVictory(Math.min(lower, upper), upper);
+    }
+
+    /** @return the fewest changed ballots, up to the given cap, that could let the rival draw level with the winner */
+    private int lowerBound(int winner, int rival, int[] scores, int cap) {
+        int most = 1;
+        while (!canDrawLevel(winner, rival, scores, most)) { // every matchup is within reach once every ballot may change
+            if (most >= cap) { return cap; }
+            most = (int) Math.min(cap, 2L * most);
+        }
+        int fewest = 1;
+        while (fewest < most) {
+            int middle = (fewest + most) >>> 1;
+            if (canDrawLevel(winner, rival, scores, middle)) {
+                most = middle;
+            } else {
+                fewest = middle + 1;
+            }
+        }
+        return most;
+    }
+
+    private boolean canDrawLevel(int winner, int rival, int[] scores, int changed) {
+        long reach = 2L * changed;
+        long rivalBest = scores[rival];
+        long winnerWorst = scores[winner];
+        for (int opponent = candidates.nextSetBit(0); opponent >= 0; opponent = candidates.nextSetBit(opponent + 1)) {
+            if (opponent != rival) {
+                int margin = headToHeads.margin(rival, opponent);
+                rivalBest += points(margin + reach) - points(margin);
+            }
+            if (opponent != winner) {
+                int margin = headToHeads.margin(winner, opponent);
+                winnerWorst -= points(margin) - points(margin - reach);
+            }
+        }
+        return rivalBest >= winnerWorst;
+    }
+
+    /** @return the fewest ballots found to change the winners, by rewriting ballots in favor of a rival */
+    private int upperBound(int winner, int[] scores, BitSet winners) {
+        Integer[] rivals = candidates.stream()
+                .filter(option -> option != winner)
+                .boxed()
+                .sorted(Comparator.comparingInt(option -> -scores[option]))
+                .limit(RIVALS)
+                .toArray(Integer[]::new);
+
+        int upper = MarginOfVictory.UNKNOWN;
+        for (int rival : rivals) {
+            upper = Math.min(upper, rewrite(winner, rival, winners, upper));
+        }
+        return upper;
+    }
+
+    /**
+     * Rewrite ballots, those ranking the winner highest first, until the winners change or the given number are rewritten
+     * @return the number of ballots rewritten, or {@link MarginOfVictory#UNKNOWN} if the winners didn't change
+     */
+    private int rewrite(int winner, int rival, BitSet winners, int most) {
+        Option winning = headToHeads.candidate(winner);
+        Option rivalling = headToHeads.candidate(rival);
+        List<BallotProfile.Entry<RankedVote>> preferring = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (BallotProfile.Entry<RankedVote> entry : profile) {
+            List<Option> rankings = entry.ballot().getRankings();
+            int position = rankings.indexOf(winning);
+            int rivalPosition = rankings.indexOf(rivalling);
+            if (position >= 0 && (rivalPosition < 0 || rivalPosition > position)) {
+                preferring.add(entry);
+                positions.add(position);
+            }
+        }
+        Integer[] order = new Integer[preferring.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(positions::get));
+
+        PairwiseMatrix changed = headToHeads.copy();
+        int rewritten = 0;
+        for (int i : order) {
+            BallotProfile.Entry<RankedVote> entry = preferring.get(i);
+            RankedVote ballot = entry.ballot();
+            List<Option> rankings = new ArrayList<>();
+            rankings.add(rivalling);
+            for (Option option : ballot.getRankings()) {
+                if (!option.equals(winning) && !option.equals(rivalling)) {
+                    rankings.add(option);
+                }
+            }
+            SimpleRankingVote replacement = new SimpleRankingVote(ballot.voterName);
+            replacement.select(rankings);
+
+            int copies = Math.min(entry.multiplicity(), most - rewritten);
+            if (copies < 1) { break; }
+            changed.add(ballot, -copies);
+            changed.add(replacement, copies);
+            if (!winners(scores(changed)).equals(winners)) {
+                int fewest = 1; // the last copies may not all have been needed
+                int needed = copies;
+                while (fewest < needed) {
+                    int middle = (fewest + needed) >>> 1;
+                    changed.add(ballot, copies - middle);
+                    changed.add(replacement, middle - copies);
+                    boolean changes = !winners(scores(changed)).equals(winners);
+                    changed.add(ballot, middle - copies);
+                    changed.add(replacement, copies - middle);
+                    if (changes) {
+                        needed = middle;
+                    } else {
+                        fewest = middle + 1;
+                    }
+                }
+                return rewritten + needed;
+            }
+            rewritten += copies;
+        }
+        return MarginOfVictory.UNKNOWN;
+    }
+
+    /** @return each candidate's doubled Copeland score, by id */
+    private int[] scores(PairwiseMatrix matrix) {
+        int[] scores = new int[matrix.size()];
+        for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+            for (int opponent = candidates.nextSetBit(0); opponent >= 0; opponent = candidates.nextSetBit(opponent + 1)) {
+                if (opponent != candidate) {
+                    scores[candidate] += points(matrix.margin(candidate, opponent));
+                }
+            }
+        }
+        return scores;
+    }
+
+    private BitSet winners(int[] scores) {
+        int winningScore = Integer.MIN_VALUE;
+        for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+            winningScore = Math.max(winningScore, scores[candidate]);
+        }
+        BitSet winners = new BitSet(scores.length);
+        for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+            if (scores[candidate] == winningScore) {
+                winners.set(candidate);
+            }
+        }
+        return winners;
+    }
+
+    /** @return the doubled Copeland points of a matchup won by the given margin */
+    private static int points(long margin) {
+        return margin > 0 ? 2 : margin == 0 ? 1 : 0;
+    }
+}
@@ -1,24 +1,31 @@
 package algorithm;
 
+import model.BallotProfile;
+import model.BallotSource;
 import model.Option;
+import model.OptionIndex;
 import model.Race;
 import model.Result;
 import model.vote.RankedVote;
 import model.vote.Vote;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 
-public class CopelandMethod extends EvalAlgorithm<RankedVote> {
+public class CopelandMethod extends EvalAlgorithm<RankedVote> implements PairwiseAlgorithm {
 
     // WARNING: This method has a problem where voting [A,B,C] and [D]
     // gives fewer points to D than A because vote 1 puts B & C over D
 
-    private Map<Option,Map<Option,ScorePair>> simulatedHeadToHeads;
-    private Map<Option, Double> copelandScores;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int sequentialCutoff = 10_000;
+    private OptionIndex index;
+    private PairwiseMatrix simulatedHeadToHeads;
+    private BitSet candidates; // ids of options that weren't vetoed
+    private double[] copelandScores;
+    private BallotProfile<RankedVote> profile; // the ballots last evaluated; null if they were streamed
 
     public CopelandMethod(Race race) {
         super(race);
@@ -26,96 +33,139 @@ public class CopelandMethod extends EvalAlgorithm<RankedVote> {
 
     /** Uses {@link RankedVote#getRankings()} */
     @Override
-    public Result evaluate(Set<RankedVote> votes) {
-        initializeStandings();
+    public Result evaluate(BallotProfile<RankedVote> profile) {
+        initializeCandidates();
+        this.profile = profile;
+        for (BallotProfile.Entry<RankedVote> entry : profile) {
+            removeVetoes(entry.ballot());
+        }
 
-        Set<Option> vetoes = votes
-                .stream()
-                .map(Vote::getVetoes)
-                .flatMap(Set::stream)
-                .collect(Collectors.toSet());
-        List<Option> candidates = race.options()
-                .stream()
-                .filter(o -> !vetoes.contains(o))
-                .collect(Collectors.toList());
+        simulatedHeadToHeads = simulateMatchups(profile);
 
-        simulateMatchups(votes, candidates);
+        return pickWinners();
+    }
 
-        calculateCopelandScores();
+    /** Counts head-to-head matchups between all options in a single pass, then ignores vetoed options */
+    @Override
+    public Result evaluate(BallotSource<RankedVote> source) {
+        initializeCandidates();
+        this.profile = null;
+        simulatedHeadToHeads = new PairwiseMatrix(index);
+        for (RankedVote vote : source) {
+            simulatedHeadToHeads.add(vote);
+            removeVetoes(vote);
+        }
+
+        return pickWinners();
+    }
 
-        return new Result(determineWinners(), null);
+    @Override
+    public Result evaluate(PairwiseMatrix headToHeads, BitSet candidates) {
+        index = headToHeads.getCandidates();
+        this.candidates = candidates;
+        simulatedHeadToHeads = headToHeads;
+        this.profile = null;
+
+        return pickWinners();
     }
 
-    private void initializeStandings() {
-        simulatedHeadToHeads = new HashMap<>();
-        for (Option candidate : race.options()) {
-            simulatedHeadToHeads.put(candidate, new HashMap<>());
+    @Override
+    public int streamingPasses() { return 1; }
+
+    /**
+     * Large elections may have their head-to-head matchups counted in parallel.
+     * Parallel and sequential counts produce identical results.
+     *
+     * @param parallelism the number of threads to count with; <code>1</code> to always count sequentially
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
         }
-        copelandScores = new HashMap<>();
+        this.parallelism = parallelism;
     }
 
-    private void simulateMatchups(Set<RankedVote> votes, List<Option> candidates) {
-        // iterate over candidate pairs
-        for (int i = 0; i< candidates.size(); i++) {
-            Option candidate = candidates.get(i);
-            for (int j = i+1; j< candidates.size(); j++) {
-                Option other = candidates.get(j);
-                ScorePair score = new ScorePair();
-
-                // iterate over votes
-                for (RankedVote vote : votes) {
-                    Option winner = score(candidate, other, vote);
-                    if (candidate.equals(winner)) {
-                        score.left = score.left + 1;
-                    } else if (other.equals(winner)) {
-                        score.right = score.right + 1;
-                    }
-                }
-
-                simulatedHeadToHeads.get(candidate).put(other, score);
-                simulatedHeadToHeads.get(other).put(candidate, score.invert());
-            }
+    /**
+     * @param sequentialCutoff elections of at most this many distinct ballots are counted sequentially;
+     *                         larger elections are split into partitions of about this size
+     */
+    public void setSequentialCutoff(int sequentialCutoff) {
+        if (sequentialCutoff < 1) {
+            throw new IllegalArgumentException("Sequential cutoff must be positive");
         }
+        this.sequentialCutoff = sequentialCutoff;
     }
 
-    private Option score(Option candidate, Option other, RankedVote vote) {
-        List<Option> choices = vote.getRankings();
+    /**
+     * Find how many ballots would have to change for the last race evaluated to have different winners.
+     * Only a lower bound is found if the ballots were streamed.
+     *
+     * @see CopelandMargin
+     */
+    public MarginOfVictory marginOfVictory() {
+        if (simulatedHeadToHeads == null) {
+            throw new IllegalStateException("No race has been evaluated");
+        }
+        return new CopelandMargin(simulatedHeadToHeads, candidates, profile).find();
+    }
 
-        int candidateRank = choices.indexOf(candidate);
-        int otherRank = choices.indexOf(other);
+    private void initializeCandidates() {
+        index = new OptionIndex(race);
+        candidates = new BitSet(index.size());
+        candidates.set(0, index.size());
+    }
 
-        if (candidateRank >= 0) {
-            if (otherRank >= 0) {
-                return candidateRank < otherRank ? candidate : other;
-            } else {
-                return candidate;
+    private void removeVetoes(Vote vote) {
+        for (Option veto : vote.getVetoes()) {
+            int id = index.indexOf(veto);
+            if (id >= 0) {
+                candidates.clear(id);
             }
-        } else if (otherRank >= 0) {
-            return other;
+        }
+    }
+
+    // Pairwise preferences between two options don't depend on other options, so vetoed options can be ignored afterward
+    private PairwiseMatrix simulateMatchups(BallotProfile<RankedVote> profile) {
+        if (parallelism == 1 || profile.size() <= sequentialCutoff) {
+            return PairwiseMatrix.of(index, profile);
         }
 
-        return null;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return PairwiseMatrix.of(index, profile, pool, sequentialCutoff);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Result pickWinners() {
+        listener.roundStarted(race, 1);
+        calculateCopelandScores();
+
+        Set<Option> winners = determineWinners();
+        listener.winners(race, winners);
+        return new Result(winners, null);
     }
 
     private void calculateCopelandScores() {
-        for (Option candidate : simulatedHeadToHeads.keySet()) {
+        copelandScores = new double[simulatedHeadToHeads.size()];
+        for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
             double score = 0.0;
 
-            Map<Option,ScorePair> candidateMatchups = simulatedHeadToHeads.get(candidate);
-            for (Option opponent : candidateMatchups.keySet()) {
-                CopelandUnit unit = scorePairToCopelandScore(candidateMatchups.get(opponent));
-                score += unit.points;
+            for (int opponent = candidates.nextSetBit(0); opponent >= 0; opponent = candidates.nextSetBit(opponent + 1)) {
+                if (opponent == candidate) { continue; }
+                score += matchupToCopelandScore(simulatedHeadToHeads.margin(candidate, opponent)).points;
             }
 
-            System.out.println("Score " + score + " for game " + candidate.name());
-            copelandScores.put(candidate, score);
+            listener.standing(race, 1, simulatedHeadToHeads.candidate(candidate), score);
+            copelandScores[candidate] = score;
         }
     }
 
-    private CopelandUnit scorePairToCopelandScore(ScorePair pair) {
-        if (pair.left > pair.right) {
+    private CopelandUnit matchupToCopelandScore(int margin) {
+        if (margin > 0) {
             return CopelandUnit.WIN;
-        } else if (pair.right > pair.left) {
+        } else if (margin < 0) {
             return CopelandUnit.LOSS;
         } else {
             return CopelandUnit.DRAW;
@@ -123,26 +173,17 @@ public class CopelandMethod extends EvalAlgorithm<RankedVote> {
     }
 
     private Set<Option> determineWinners() {
-        Double winningScore = copelandScores.values()
-                .stream()
-                .max(Double::compareTo)
-                .orElse(-1.0); // no winners
-        // Assume the winning score exists
-        return copelandScores.keySet()
-                .stream()
-                .filter(option -> winningScore.equals(copelandScores.get(option)))
-                .collect(Collectors.toSet());
-    }
-
-    private static class ScorePair {
-        private int left, right;
-
-        public ScorePair invert() {
-            ScorePair inverted = new ScorePair();
-            inverted.left = this.right;
-            inverted.right = this.left;
-            return inverted;
+        double winningScore = -1.0; // no winners
+        for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+            winningScore = Math.max(winningScore, copelandScores[candidate]);
+        }
+        Set<Option> winners = new HashSet<>();
+        for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+            if (copelandScores[candidate] == winningScore) {
+                winners.add(simulatedHeadToHeads.candidate(candidate));
+            }
         }
+        return winners;
     }
 
     enum CopelandUnit {
@@ -1,18 +1,59 @@
 package algorithm;
 
+import model.BallotProfile;
+import model.BallotSource;
 import model.Race;
 import model.Result;
 import model.vote.Vote;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.Set;
 
 public abstract class EvalAlgorithm<V extends Vote> {
     protected final Race race;
+    protected EvaluationListener listener = EvaluationListener.NONE;
+    protected CancellationToken cancellation = CancellationToken.NONE;
 
     public EvalAlgorithm(Race race) {
         this.race = race;
     }
 
+    /** Report progress to the given listener while evaluating */
+    public void setListener(@NotNull EvaluationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Stop evaluating once the given token is cancelled, and return the best result found by then,
+     * which isn't {@link Result#isExact() exact}.
+     * Algorithms that can't settle for a provisional result ignore the token, and always evaluate fully.
+     */
+    public void setCancellation(@NotNull CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
     // return a set of tied winners
-    public abstract Result evaluate(Set<V> votes);
+    public Result evaluate(Set<V> votes) {
+        return evaluate(BallotProfile.of(votes));
+    }
+
+    /** Evaluate each distinct ballot once, weighted by the number of voters who cast it */
+    public abstract Result evaluate(BallotProfile<V> profile);
+
+    /**
+     * Evaluate ballots as they are read from the given source.
+     * By default, this reads the source once to collect its distinct ballots into a {@link BallotProfile}.
+     * Algorithms that {@link EvalAlgorithm#streamingPasses() stream} override this to evaluate
+     * without holding ballots in memory.
+     */
+    public Result evaluate(BallotSource<V> source) {
+        return evaluate(BallotProfile.of(source));
+    }
+
+    /**
+     * @return the number of passes {@link EvalAlgorithm#evaluate(BallotSource)} makes over its source
+     * when evaluating without holding ballots in memory;
+     * or <code>0</code> if this algorithm must hold its ballots in memory
+     */
+    public int streamingPasses() { return 0; }
 }
@@ -0,0 +1,35 @@
+package algorithm;
+
+import model.Option;
+import model.Race;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * Receives progress from an {@link EvalAlgorithm} as it evaluates a race.
+ * Every method does nothing by default, so listeners need only override the events they care about.
+ * <br>
+ * Algorithms report to {@link EvaluationListener#NONE} unless given another listener.
+ * Its calls do nothing, so reporting to it costs only a virtual call per event.
+ */
+public interface EvaluationListener {
+
+    EvaluationListener NONE = new EvaluationListener() {};
+
+    /** Rounds are numbered from <code>1</code>; algorithms that count once report a single round */
+    default void roundStarted(@NotNull Race race, int round) {}
+
+    /** The score of a candidate still in the race, once its votes have been counted for the round */
+    default void standing(@NotNull Race race, int round, @NotNull Option option, double score) {}
+
+    default void eliminated(@NotNull Race race, int round, @NotNull Option option) {}
+
+    /** A candidate won a seat, for algorithms that elect several winners over several rounds */
+    default void elected(@NotNull Race race, int round, @NotNull Option option) {}
+
+    /** Vote weight moved from an eliminated candidate to a remaining candidate */
+    default void transferred(@NotNull Race race, int round, @NotNull Option from, @NotNull Option to, double weight) {}
+
+    default void winners(@NotNull Race race, @NotNull Set<Option> winners) {}
+}
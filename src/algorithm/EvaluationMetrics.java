@@ -0,0 +1,67 @@
+package algorithm;
+
+import model.Option;
+import model.Race;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts evaluation events across every evaluation it listens to.
+ * Counters may be updated by several evaluations at once.
+ */
+public class EvaluationMetrics implements EvaluationListener {
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder eliminations = new LongAdder();
+    private final LongAdder transfers = new LongAdder();
+    private final DoubleAdder transferredWeight = new DoubleAdder();
+    private final LongAdder tiedResults = new LongAdder();
+
+    @Override
+    public void roundStarted(@NotNull Race race, int round) {
+        rounds.increment();
+    }
+
+    @Override
+    public void eliminated(@NotNull Race race, int round, @NotNull Option option) {
+        eliminations.increment();
+    }
+
+    @Override
+    public void transferred(@NotNull Race race, int round, @NotNull Option from, @NotNull Option to, double weight) {
+        transfers.increment();
+        transferredWeight.add(weight);
+    }
+
+    @Override
+    public void winners(@NotNull Race race, @NotNull Set<Option> winners) {
+        evaluations.increment();
+        if (winners.size() > 1) {
+            tiedResults.increment();
+        }
+    }
+
+    /** @return the number of evaluations that have picked their winners */
+    public long evaluations() { return evaluations.sum(); }
+
+    public long rounds() { return rounds.sum(); }
+
+    public long eliminations() { return eliminations.sum(); }
+
+    public long transfers() { return transfers.sum(); }
+
+    public double transferredWeight() { return transferredWeight.sum(); }
+
+    /** @return the number of evaluations that ended in a tie between several winners */
+    public long tiedResults() { return tiedResults.sum(); }
+
+    @Override
+    public String toString() {
+        return "evaluations=" + evaluations() + " rounds=" + rounds() + " eliminations=" + eliminations()
+                + " transfers=" + transfers() + " transferredWeight=" + transferredWeight() + " tiedResults=" + tiedResults();
+    }
+}
@@ -1,39 +1,194 @@
 package algorithm;
 
 import model.Ballot;
+import model.BallotProfile;
+import model.BallotSource;
 import model.Election;
 import model.Race;
 import model.Result;
 import model.vote.Vote;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 public class Evaluator {
+
+	private static final Function<Race, EvalAlgorithm<Vote>> SINGLE_CHOICE = SingleChoice::new;
+	private static final Function<Race, EvalAlgorithm<Vote>> RANKED_CHOICE = WeightedRunoff::new;
+
+	private static final int MAX_CACHED_RESULTS = 256;
+	// Least recently used results, keyed by the algorithm factory that evaluated them; only the latest version of each race
+	private static final Map<CacheKey, Result> results = Collections.synchronizedMap(
+			new LinkedHashMap<>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<CacheKey, Result> eldest) {
+					return size() > MAX_CACHED_RESULTS;
+				}
+			});
+
+	private static Executor executor = ForkJoinPool.commonPool();
+	private static EvaluationListener listener = EvaluationListener.NONE;
+	private static volatile boolean smithSetFirst = false;
+
+	/** Set the executor that the races of an election are evaluated on */
+	public static void setExecutor(Executor executor) {
+		Evaluator.executor = executor;
+	}
+
+	/** @return the executor that the races of an election are evaluated on */
+	public static Executor getExecutor() { return executor; }
+
+	/**
+	 * Set the listener given to every algorithm this evaluates an election with.
+	 * Races answered from remembered results aren't evaluated, so aren't reported.
+	 */
+	public static void setListener(EvaluationListener listener) {
+		Evaluator.listener = listener;
+	}
 	
+	/**
+	 * Narrow each race to its Smith set before evaluating it with the given algorithm.
+	 * Races with many options but a clear top tier are then much cheaper to evaluate.
+	 *
+	 * @see SmithSet
+	 */
+	public static void setSmithSetFirst(boolean smithSetFirst) {
+		Evaluator.smithSetFirst = smithSetFirst;
+	}
+
 	/**
 	 * @return a RankedChoiceVote, using multiple choices to indicate tying winners of a race
 	 */
 	public static Map<Race, Result> evaluateSingle(Election<Vote> election) {
-		return evaluateElection(election, SingleChoice::new);
+		return evaluateElection(election, SINGLE_CHOICE);
 	}
 
 	public static Map<Race,Result> evaluateRankedChoice(Election<Vote> election) {
-		return evaluateElection(election, WeightedRunoff::new);
+		return evaluateElection(election, RANKED_CHOICE);
+	}
+
+	/** @see Evaluator#evaluateRankedChoice(Election); with its races evaluated concurrently on the given executor */
+	public static Map<Race,Result> evaluateRankedChoice(Election<Vote> election, Executor executor) {
+		return evaluateElection(election, RANKED_CHOICE, executor);
+	}
+
+	/** @return the algorithm {@link Evaluator#evaluateRankedChoice(Election)} evaluates each race with */
+	public static Function<Race, EvalAlgorithm<Vote>> rankedChoiceAlgorithm() {
+		return smithSetFirst ? SmithSet.first(RANKED_CHOICE) : RANKED_CHOICE;
 	}
 
 	public static <V extends Vote> Map<Race,Result> evaluateElection(Election<V> election, Function<Race,EvalAlgorithm<V>> algorithm) {
+		return evaluateElection(election, algorithm, executor);
+	}
+
+	/**
+	 * Evaluate each race of the election concurrently on the given executor.
+	 * An election with a single race is evaluated on the calling thread.
+	 * <br>
+	 * Results are remembered by algorithm, race, and {@link Election#getVersion() election version},
+	 * so races that haven't changed since they were last evaluated by the same algorithm
+	 * aren't evaluated again. Algorithms are recognized by their factory, so pass the same
+	 * factory object to reuse its results. Results that aren't {@link Result#isExact() exact} aren't remembered.
+	 */
+	public static <V extends Vote> Map<Race,Result> evaluateElection(Election<V> election, Function<Race,EvalAlgorithm<V>> algorithm, Executor executor) {
+		return evaluateRaces(election, smithSetFirst ? SmithSet.first(algorithm) : algorithm, executor);
+	}
+
+	private static <V extends Vote> Map<Race,Result> evaluateRaces(Election<V> election, Function<Race,EvalAlgorithm<V>> algorithm, Executor executor) {
 		Ballot ballot = election.getBallot();
-		Map<Race, Result> result = new HashMap<>();
+		long version = election.getVersion();
+		Map<Race, Result> result = new ConcurrentHashMap<>();
 
+		List<Race> pending = new ArrayList<>();
 		for (Race race : ballot.races()) {
-			Set<V> votes = election.getVotes(race);
-			Result raceResult = algorithm.apply(race).evaluate(votes);
-			result.put(race, raceResult);
+			Result cached = results.get(new CacheKey(algorithm, race, version));
+			if (cached != null) {
+				result.put(race, cached);
+			} else {
+				pending.add(race);
+			}
+		}
+
+		if (pending.size() == 1) {
+			Race race = pending.get(0);
+			result.put(race, evaluateRace(election, algorithm, race, version));
+			return result;
+		}
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (Race race : pending) {
+			futures.add(CompletableFuture.runAsync(
+					() -> result.put(race, evaluateRace(election, algorithm, race, version)),
+					executor));
+		}
+
+		try {
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) throw cause;
+			throw e;
 		}
 		
 		return result;
 	}
+
+	/** @param version the election's version before evaluation, which the result is remembered by */
+	private static <V extends Vote> Result evaluateRace(Election<V> election, Function<Race,EvalAlgorithm<V>> algorithm, Race race, long version) {
+		EvalAlgorithm<V> raceAlgorithm = algorithm.apply(race);
+		if (listener != EvaluationListener.NONE) {
+			raceAlgorithm.setListener(listener);
+		}
+		Result raceResult = evaluate(raceAlgorithm, election.ballotSource(race));
+		if (raceResult.isExact()) { // a provisional result would keep a full evaluation from ever replacing it
+			remember(new CacheKey(algorithm, race, version), raceResult);
+		}
+		return raceResult;
+	}
+
+	/**
+	 * Remember a result in place of those of past versions of the same race by the same algorithm.
+	 * Versions only ever increase, so those results would never be asked for again,
+	 * and some, like a {@link RunoffResult}, keep the whole state of their count.
+	 */
+	private static void remember(CacheKey key, Result result) {
+		synchronized (results) {
+			boolean superseded = false;
+			for (Iterator<CacheKey> keys = results.keySet().iterator(); keys.hasNext(); ) {
+				CacheKey cached = keys.next();
+				if (cached.algorithm().equals(key.algorithm()) && cached.race().name().equals(key.race().name())) {
+					if (cached.version() < key.version()) {
+						keys.remove();
+					} else if (cached.version() > key.version()) {
+						superseded = true; // evaluated after a newer version was
+					}
+				}
+			}
+			if (!superseded) {
+				results.put(key, result);
+			}
+		}
+	}
+
+	/**
+	 * Evaluate ballots straight from a streaming source when the algorithm supports it,
+	 * or else collect the source's distinct ballots into a {@link BallotProfile} first.
+	 */
+	public static <V extends Vote> Result evaluate(EvalAlgorithm<V> algorithm, BallotSource<V> source) {
+		if (source.isStreaming() && algorithm.streamingPasses() > 0) {
+			return algorithm.evaluate(source);
+		}
+		return algorithm.evaluate(BallotProfile.of(source));
+	}
+
+	private record CacheKey(Object algorithm, Race race, long version) {}
 }
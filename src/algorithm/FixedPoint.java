@@ -0,0 +1,37 @@
+package algorithm;
+
+import java.math.BigInteger;
+
+/**
+ * Fixed-point arithmetic for vote tallies.
+ * <br>
+ * Fractional vote weights are rounded once, to a multiple of <code>2^-32</code>,
+ * and then summed exactly as <code>long</code>s. Unlike <code>double</code> sums, the totals
+ * don't depend on the order votes are counted in, and a weight can be subtracted back out exactly.
+ */
+final class FixedPoint {
+
+    static final long ONE = 1L << 32;
+
+    private FixedPoint() {}
+
+    static long of(double value) {
+        return Math.round(value * ONE);
+    }
+
+    static double toDouble(long value) {
+        return (double) value / ONE;
+    }
+
+    /** @return <code>value * numerator / denominator</code>, rounded down, for non-negative arguments whose result fits in a <code>long</code> */
+    static long scale(long value, long numerator, long denominator) {
+        long product = value * numerator;
+        if (Math.multiplyHigh(value, numerator) == 0L && product >= 0L) {
+            return product / denominator;
+        }
+        return BigInteger.valueOf(value)
+                .multiply(BigInteger.valueOf(numerator))
+                .divide(BigInteger.valueOf(denominator))
+                .longValueExact();
+    }
+}
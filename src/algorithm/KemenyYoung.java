@@ -0,0 +1,414 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.BallotSource;
+import model.Option;
+import model.OptionIndex;
+import model.Race;
+import model.vote.RankedVote;
+import model.vote.Vote;
+
+import java.io.Serial;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * The <a href="https://electowiki.org/wiki/Kemeny-Young_method">Kemeny–Young method</a>,
+ * which ranks every candidate rather than only picking winners.
+ * <br>
+ * A ranking's agreement is the number of ballot preferences between pairs of candidates that it keeps;
+ * the consensus ranking is one with the most agreement. Finding it is NP-hard.
+ * Up to 20 candidates, Held–Karp-style dynamic programming over subsets, as bit masks,
+ * finds the best ranking of every subset placed at the top of the ranking, in <code>O(2^k k)</code> time.
+ * With more, a parallel branch and bound extends rankings from the top, starting from the Borda ranking
+ * improved by swapping neighbors, and prunes rankings that can't beat the best found so far:
+ * at most, the candidates left to place keep the larger side of every matchup between them.
+ * Beyond 64 candidates, only the improved Borda ranking is given, which isn't {@link KemenyYoungResult#isExact() exact}.
+ * <br>
+ * Head-to-head counts are read from a {@link PairwiseMatrix}, counted once; vetoed options are removed first.
+ * The winners are the candidates that top a consensus ranking; with the branch and bound, only the one found.
+ * While a race is evaluated, {@link KemenyYoung#bestRanking()} gives the best ranking found so far.
+ * If evaluation is {@link EvalAlgorithm#setCancellation(CancellationToken) cancelled}, it settles for that ranking,
+ * or for the improved Borda ranking if the dynamic programming hadn't finished.
+ */
+public class KemenyYoung extends EvalAlgorithm<RankedVote> implements PairwiseAlgorithm {
+
+    private static final int MAX_SUBSET_CANDIDATES = 20; // most candidates to rank by dynamic programming
+    private static final int MAX_SEARCH_CANDIDATES = Long.SIZE; // most candidates to rank by branch and bound
+    private static final int SPLIT_DEPTH = 2; // rankings are searched in parallel down to this many placed candidates
+    private static final int CHECK_INTERVAL = 1 << 12; // subsets ranked between checks for cancellation
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private OptionIndex index;
+    private PairwiseMatrix headToHeads;
+    private BitSet candidates; // ids of options that weren't vetoed
+
+    // the ranking problem, over the candidates' positions in ids
+    private int size;
+    private int[] ids;
+    private int[] wins; // row-major: ballots preferring the row candidate over the column candidate
+
+    private final AtomicLong bestAgreement = new AtomicLong();
+    private volatile List<Option> bestRanking = List.of();
+    private int[] bestOrder; // positions in ids of the best ranking found so far; guarded by this
+    private volatile boolean cutShort; // whether the best ranking found might not be a consensus ranking
+
+    public KemenyYoung(Race race) {
+        super(race);
+    }
+
+    /** Uses {@link RankedVote#getRankings()} */
+    @Override
+    public KemenyYoungResult evaluate(BallotProfile<RankedVote> profile) {
+        initializeCandidates();
+        for (BallotProfile.Entry<RankedVote> entry : profile) {
+            removeVetoes(entry.ballot());
+        }
+
+        headToHeads = PairwiseMatrix.of(index, profile);
+
+        return findConsensus();
+    }
+
+    /** Counts head-to-head matchups between all options in a single pass, then ignores vetoed options */
+    @Override
+    public KemenyYoungResult evaluate(BallotSource<RankedVote> source) {
+        initializeCandidates();
+        headToHeads = new PairwiseMatrix(index);
+        for (RankedVote vote : source) {
+            headToHeads.add(vote);
+            removeVetoes(vote);
+        }
+
+        return findConsensus();
+    }
+
+    @Override
+    public KemenyYoungResult evaluate(PairwiseMatrix headToHeads, BitSet candidates) {
+        index = headToHeads.getCandidates();
+        this.candidates = candidates;
+        this.headToHeads = headToHeads;
+
+        return findConsensus();
+    }
+
+    @Override
+    public int streamingPasses() { return 1; }
+
+    /**
+     * @param parallelism the number of threads to search rankings with; <code>1</code> to always search sequentially
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the best ranking found so far by the evaluation in progress, most preferred first,
+     * or the consensus ranking once it's done; empty before any is found.
+     * Safe to call from any thread.
+     */
+    public List<Option> bestRanking() { return bestRanking; }
+
+    private void initializeCandidates() {
+        index = new OptionIndex(race);
+        candidates = new BitSet(index.size());
+        candidates.set(0, index.size());
+    }
+
+    private void removeVetoes(Vote vote) {
+        for (Option veto : vote.getVetoes()) {
+            int id = index.indexOf(veto);
+            if (id >= 0) {
+                candidates.clear(id);
+            }
+        }
+    }
+
+    private KemenyYoungResult findConsensus() {
+        listener.roundStarted(race, 1);
+        ids = candidates.stream().toArray();
+        size = ids.length;
+        wins = new int[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                wins[i * size + j] = headToHeads.count(ids[i], ids[j]);
+            }
+        }
+
+        bestAgreement.set(Long.MIN_VALUE);
+        synchronized (this) {
+            bestOrder = null;
+        }
+        bestRanking = List.of();
+        cutShort = false;
+
+        offer(improvedBordaOrder());
+        Set<Option> winners = null;
+        if (size <= MAX_SUBSET_CANDIDATES) {
+            winners = rankBySubsets();
+        } else if (size <= MAX_SEARCH_CANDIDATES) {
+            search();
+        } else {
+            cutShort = true;
+        }
+        if (winners == null) {
+            winners = size == 0 ? Set.of() : Set.of(bestRanking.get(0));
+        }
+
+        listener.winners(race, winners);
+        return new KemenyYoungResult(winners, bestRanking, bestAgreement.get(), !cutShort);
+    }
+
+    //region Dynamic programming
+
+    /**
+     * Find the most agreement of each subset ranked at the top, by the last candidate placed in it.
+     * Placing a candidate below a subset keeps every preference of the subset's candidates over it,
+     * which is read from two tables, by the low and the high half of the subset's bits.
+     *
+     * @return the candidates that top a consensus ranking, or <code>null</code> if cancelled first
+     */
+    private Set<Option> rankBySubsets() {
+        int lowBits = size / 2;
+        int lowMask = (1 << lowBits) - 1;
+        int[][] lowAbove = new int[size][];
+        int[][] highAbove = new int[size][];
+        for (int candidate = 0; candidate < size; candidate++) {
+            lowAbove[candidate] = preferencesOver(candidate, 0, lowBits);
+            highAbove[candidate] = preferencesOver(candidate, lowBits, size);
+        }
+
+        int full = (1 << size) - 1;
+        long[] agreement = new long[full + 1];
+        for (int subset = 1; subset <= full; subset++) {
+            if (subset % CHECK_INTERVAL == 0 && cancellation.isCancelled()) {
+                cutShort = true;
+                return null;
+            }
+            long most = Long.MIN_VALUE;
+            for (int bits = subset; bits != 0; bits &= bits - 1) {
+                int last = Integer.numberOfTrailingZeros(bits);
+                int above = subset ^ (1 << last);
+                most = Math.max(most, agreement[above] + lowAbove[last][above & lowMask] + highAbove[last][above >>> lowBits]);
+            }
+            agreement[subset] = most;
+        }
+
+        // read the ranking back from the bottom
+        int[] order = new int[size];
+        int subset = full;
+        for (int place = size - 1; place >= 0; place--) {
+            for (int bits = subset; bits != 0; bits &= bits - 1) {
+                int last = Integer.numberOfTrailingZeros(bits);
+                int above = subset ^ (1 << last);
+                if (agreement[above] + lowAbove[last][above & lowMask] + highAbove[last][above >>> lowBits] == agreement[subset]) {
+                    order[place] = last;
+                    subset = above;
+                    break;
+                }
+            }
+        }
+        offer(order);
+
+        // a candidate tops a consensus ranking if it does best ranked above a consensus ranking of the rest
+        Set<Option> winners = new HashSet<>();
+        for (int top = 0; top < size; top++) {
+            int rest = full ^ (1 << top);
+            if (preferencesOf(top, rest) + agreement[rest] == agreement[full]) {
+                winners.add(index.option(ids[top]));
+            }
+        }
+        return winners;
+    }
+
+    /** @return by each subset of the candidates in positions <code>[from, to)</code>, their preferences over the given candidate */
+    private int[] preferencesOver(int candidate, int from, int to) {
+        int[] table = new int[1 << (to - from)];
+        for (int subset = 1; subset < table.length; subset++) {
+            int lowest = Integer.numberOfTrailingZeros(subset);
+            table[subset] = table[subset & (subset - 1)] + wins[(from + lowest) * size + candidate];
+        }
+        return table;
+    }
+
+    //endregion
+
+    //region Branch and bound
+
+    /** @return the Borda ranking, with neighbors swapped wherever that keeps more preferences, until none do */
+    private int[] improvedBordaOrder() {
+        long[] borda = new long[size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                borda[i] += wins[i * size + j];
+            }
+        }
+        int[] order = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingLong((Integer candidate) -> -borda[candidate]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        boolean swapped = true;
+        while (swapped) {
+            swapped = false;
+            for (int place = 1; place < size; place++) {
+                int upper = order[place - 1];
+                int lower = order[place];
+                if (wins[lower * size + upper] > wins[upper * size + lower]) {
+                    order[place - 1] = lower;
+                    order[place] = upper;
+                    swapped = true;
+                }
+            }
+        }
+        return order;
+    }
+
+    private void search() {
+        long unplaced = size == Long.SIZE ? -1L : (1L << size) - 1;
+        long mostAgreement = 0L; // if every matchup went the way of its majority
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                mostAgreement += Math.max(wins[i * size + j], wins[j * size + i]);
+            }
+        }
+
+        Extend root = new Extend(new int[size], 0, unplaced, 0L, mostAgreement);
+        if (parallelism == 1) {
+            root.compute();
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(root);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Extends a ranking from the top by each candidate that could lead to a better ranking than the best found */
+    private class Extend extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int[] order;
+        private final int placed;
+        private final long unplaced;
+        private final long agreement; // preferences kept by the placed candidates, over each other and the rest
+        private final long mostAmongUnplaced; // the most that the unplaced candidates could keep among themselves
+
+        Extend(int[] order, int placed, long unplaced, long agreement, long mostAmongUnplaced) {
+            this.order = order;
+            this.placed = placed;
+            this.unplaced = unplaced;
+            this.agreement = agreement;
+            this.mostAmongUnplaced = mostAmongUnplaced;
+        }
+
+        @Override
+        protected void compute() {
+            if (placed < SPLIT_DEPTH && placed < size) {
+                List<Extend> extensions = new ArrayList<>();
+                for (long bits = unplaced; bits != 0; bits &= bits - 1) {
+                    int next = Long.numberOfTrailingZeros(bits);
+                    if (!promising(order, placed, next, agreement, mostAmongUnplaced, unplaced)) { continue; }
+                    int[] extended = order.clone();
+                    extended[placed] = next;
+                    long rest = unplaced & ~(1L << next);
+                    extensions.add(new Extend(extended, placed + 1, rest,
+                            agreement + kept(next, rest), mostAmongUnplaced - most(next, rest)));
+                }
+                invokeAll(extensions);
+            } else {
+                extend(order.clone(), placed, unplaced, agreement, mostAmongUnplaced);
+            }
+        }
+    }
+
+    private void extend(int[] order, int placed, long unplaced, long agreement, long mostAmongUnplaced) {
+        if (cancellation.isCancelled()) {
+            cutShort = true;
+            return;
+        }
+        if (unplaced == 0L) {
+            if (agreement > bestAgreement.get()) {
+                offer(order);
+            }
+            return;
+        }
+        for (long bits = unplaced; bits != 0; bits &= bits - 1) {
+            int next = Long.numberOfTrailingZeros(bits);
+            if (!promising(order, placed, next, agreement, mostAmongUnplaced, unplaced)) { continue; }
+            long rest = unplaced & ~(1L << next);
+            order[placed] = next;
+            extend(order, placed + 1, rest, agreement + kept(next, rest), mostAmongUnplaced - most(next, rest));
+        }
+    }
+
+    /**
+     * Placing a candidate just below one it's preferred over is never best, since swapping them would keep more;
+     * and a ranking is only worth extending if it could keep more preferences than the best found
+     */
+    private boolean promising(int[] order, int placed, int next, long agreement, long mostAmongUnplaced, long unplaced) {
+        if (placed > 0) {
+            int above = order[placed - 1];
+            if (wins[next * size + above] > wins[above * size + next]) {
+                return false;
+            }
+        }
+        long rest = unplaced & ~(1L << next);
+        return agreement + kept(next, rest) + mostAmongUnplaced - most(next, rest) > bestAgreement.get();
+    }
+
+    /** @return the preferences for the given candidate over each of the others */
+    private long kept(int candidate, long others) {
+        long kept = 0L;
+        for (long bits = others; bits != 0; bits &= bits - 1) {
+            kept += wins[candidate * size + Long.numberOfTrailingZeros(bits)];
+        }
+        return kept;
+    }
+
+    /** @return the most preferences that matchups between the given candidate and each of the others could keep */
+    private long most(int candidate, long others) {
+        long most = 0L;
+        for (long bits = others; bits != 0; bits &= bits - 1) {
+            int other = Long.numberOfTrailingZeros(bits);
+            most += Math.max(wins[candidate * size + other], wins[other * size + candidate]);
+        }
+        return most;
+    }
+
+    //endregion
+
+    /** Publish the given ranking, if it keeps more preferences than the best found so far */
+    private synchronized void offer(int[] order) {
+        long agreement = 0L;
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                agreement += wins[order[i] * size + order[j]];
+            }
+        }
+        if (bestOrder != null && agreement <= bestAgreement.get()) { return; }
+
+        bestOrder = order.clone();
+        bestAgreement.set(agreement);
+        List<Option> ranking = new ArrayList<>(size);
+        for (int candidate : bestOrder) {
+            ranking.add(index.option(ids[candidate]));
+        }
+        bestRanking = Collections.unmodifiableList(ranking);
+    }
+
+    /** @return the preferences for the given candidate over each candidate in the given subset */
+    private long preferencesOf(int candidate, int subset) {
+        return kept(candidate, subset & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,28 @@
+package algorithm;
+
+import model.Option;
+import model.Result;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The winners of a {@link KemenyYoung} election, along with the consensus ranking of every candidate.
+ */
+public class KemenyYoungResult extends Result {
+
+    private final List<Option> ranking;
+    private final long agreement;
+
+    KemenyYoungResult(Set<Option> winners, List<Option> ranking, long agreement, boolean exact) {
+        super(winners, null, exact);
+        this.ranking = List.copyOf(ranking);
+        this.agreement = agreement;
+    }
+
+    /** @return every candidate that wasn't vetoed, most preferred first */
+    public List<Option> getRanking() { return ranking; }
+
+    /** @return the number of ballot preferences between pairs of candidates that the ranking keeps */
+    public long getAgreement() { return agreement; }
+}
@@ -0,0 +1,68 @@
+package algorithm;
+
+import model.Option;
+import model.Race;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Logs each evaluation event as a single line of <code>key=value</code> pairs, for example:
+ * <br>
+ * <code>event=standing race="Game night" round=2 option="Chess" score=0.75</code>
+ */
+public class LoggingEvaluationListener implements EvaluationListener {
+
+    private final PrintStream out;
+
+    public LoggingEvaluationListener() {
+        this(System.out);
+    }
+
+    public LoggingEvaluationListener(@NotNull PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void roundStarted(@NotNull Race race, int round) {
+        out.println("event=round race=" + quote(race.name()) + " round=" + round);
+    }
+
+    @Override
+    public void standing(@NotNull Race race, int round, @NotNull Option option, double score) {
+        out.println("event=standing race=" + quote(race.name()) + " round=" + round
+                + " option=" + quote(option.name()) + " score=" + score);
+    }
+
+    @Override
+    public void eliminated(@NotNull Race race, int round, @NotNull Option option) {
+        out.println("event=eliminated race=" + quote(race.name()) + " round=" + round + " option=" + quote(option.name()));
+    }
+
+    @Override
+    public void elected(@NotNull Race race, int round, @NotNull Option option) {
+        out.println("event=elected race=" + quote(race.name()) + " round=" + round + " option=" + quote(option.name()));
+    }
+
+    @Override
+    public void transferred(@NotNull Race race, int round, @NotNull Option from, @NotNull Option to, double weight) {
+        out.println("event=transfer race=" + quote(race.name()) + " round=" + round
+                + " from=" + quote(from.name()) + " to=" + quote(to.name()) + " weight=" + weight);
+    }
+
+    @Override
+    public void winners(@NotNull Race race, @NotNull Set<Option> winners) {
+        String names = winners.stream()
+                .map(Option::name)
+                .sorted()
+                .map(LoggingEvaluationListener::quote)
+                .collect(Collectors.joining(","));
+        out.println("event=winners race=" + quote(race.name()) + " winners=[" + names + "]");
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
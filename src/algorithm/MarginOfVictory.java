@@ -0,0 +1,32 @@
+package algorithm;
+
+/**
+ * How many ballots would have to change for a race to have different winners:
+ * at least <code>lowerBound</code>, and at most <code>upperBound</code>, for which such a change was found.
+ * <br>
+ * A changed ballot may express any preferences, but keeps its vetoes, since a single veto could remove any winner.
+ * Shadow votes don't change.
+ *
+ * @param lowerBound the fewest ballots that could change the winners
+ * @param upperBound the number of ballots found to change the winners, or {@link MarginOfVictory#UNKNOWN} if none was found
+ */
+public record MarginOfVictory(int lowerBound, int upperBound) {
+
+    public static final int UNKNOWN = Integer.MAX_VALUE;
+    private static final double EPSILON = 1e-6; // votes lost to rounding
+
+    public boolean isExact() { return lowerBound == upperBound; }
+
+    /**
+     * A changed ballot moves the difference between two candidates' scores by at most two votes
+     * @return the fewest changed ballots that could close a gap of the given number of votes
+     */
+    static int ballotsToClose(double gap) {
+        return gap <= EPSILON ? 0 : (int) Math.ceil(gap / 2.0 - EPSILON);
+    }
+
+    /** @return the fewest changed ballots that could more than close a gap of the given number of votes */
+    static int ballotsToPass(double gap) {
+        return gap < 0.0 ? 0 : (int) Math.floor(gap / 2.0 - EPSILON) + 1;
+    }
+}
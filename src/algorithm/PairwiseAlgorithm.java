@@ -0,0 +1,18 @@
+package algorithm;
+
+import model.Result;
+
+import java.util.BitSet;
+
+/**
+ * An algorithm that decides a race from head-to-head counts alone,
+ * so that it can decide from counts already made, e.g. by a {@link SmithSet} pre-pass.
+ */
+interface PairwiseAlgorithm {
+
+    /**
+     * @param headToHeads counts over every option of the race
+     * @param candidates ids of the options to decide between; vetoed options must already be left out
+     */
+    Result evaluate(PairwiseMatrix headToHeads, BitSet candidates);
+}
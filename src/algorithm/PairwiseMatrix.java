@@ -0,0 +1,175 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.Option;
+import model.OptionIndex;
+import model.vote.RankedVote;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serial;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Head-to-head preference counts between every pair of candidates.
+ * <br>
+ * Counts are kept in a flat, row-major <code>int[]</code> keyed by candidate id in an {@link OptionIndex}:
+ * {@link PairwiseMatrix#count(int, int) count(i, j)} is the number of ballots that rank
+ * candidate <code>i</code> above candidate <code>j</code>.
+ * A candidate ranked on a ballot is preferred over every candidate left off of it.
+ * <br>
+ * Only preferences between candidates ranked on the same ballot are counted pairwise,
+ * along with the number of ballots ranking each candidate at all.
+ * The ballots preferring <code>i</code> over <code>j</code> are then those ranking <code>i</code>,
+ * less those ranking <code>j</code> above <code>i</code>,
+ * so a ballot of <code>m</code> ranked candidates costs <code>O(m²)</code> to count, however many candidates there are.
+ */
+public class PairwiseMatrix {
+
+    private final OptionIndex candidates;
+    private final int size;
+    private final int[] counts; // ballots ranking both candidates, and the first above the second
+    private final int[] ranked; // ballots ranking each candidate
+
+    // scratch space, reused between ballots
+    private final boolean[] seen;
+    private final int[] order;
+
+    public PairwiseMatrix(@NotNull OptionIndex candidates) {
+        this.candidates = candidates;
+        this.size = candidates.size();
+        this.counts = new int[size * size];
+        this.ranked = new int[size];
+        this.seen = new boolean[size];
+        this.order = new int[size];
+    }
+
+    /** Count the pairwise preferences of every given ballot */
+    public static PairwiseMatrix of(@NotNull OptionIndex candidates, @NotNull Iterable<? extends RankedVote> votes) {
+        PairwiseMatrix matrix = new PairwiseMatrix(candidates);
+        for (RankedVote vote : votes) {
+            matrix.add(vote);
+        }
+        return matrix;
+    }
+
+    /** Count the pairwise preferences of every distinct ballot, weighted by its multiplicity */
+    public static PairwiseMatrix of(@NotNull OptionIndex candidates, @NotNull BallotProfile<? extends RankedVote> profile) {
+        PairwiseMatrix matrix = new PairwiseMatrix(candidates);
+        for (BallotProfile.Entry<? extends RankedVote> entry : profile) {
+            matrix.add(entry.ballot(), entry.multiplicity());
+        }
+        return matrix;
+    }
+
+    /**
+     * Count the pairwise preferences of every distinct ballot on the given pool.
+     * The ballots are split into partitions of at most <code>sequentialCutoff</code> distinct ballots,
+     * each partition is counted into its own matrix, and the partial counts are merged.
+     * The result is identical to {@link PairwiseMatrix#of(OptionIndex, BallotProfile)}.
+     */
+    public static PairwiseMatrix of(@NotNull OptionIndex candidates,
+                                    @NotNull BallotProfile<? extends RankedVote> profile,
+                                    @NotNull ForkJoinPool pool,
+                                    int sequentialCutoff) {
+        return pool.invoke(new PartitionTally(candidates, profile.entries().spliterator(), Math.max(1, sequentialCutoff)));
+    }
+
+    /** @see PairwiseMatrix#add(RankedVote, int) */
+    public void add(@NotNull RankedVote vote) {
+        add(vote, 1);
+    }
+
+    /**
+     * Uses {@link RankedVote#getRankings()}; options that aren't candidates are skipped
+     * @param weight the number of identical ballots to count; negative to withdraw ballots counted before
+     */
+    public void add(@NotNull RankedVote vote, int weight) {
+        int length = 0;
+        for (Option option : vote.getRankings()) {
+            int index = candidates.indexOf(option);
+            if (index < 0 || seen[index]) { continue; }
+            seen[index] = true;
+            order[length++] = index;
+        }
+
+        for (int rank = 0; rank < length; rank++) {
+            int candidate = order[rank];
+            seen[candidate] = false;
+            ranked[candidate] += weight;
+            int row = candidate * size;
+            for (int lower = rank + 1; lower < length; lower++) {
+                counts[row + order[lower]] += weight;
+            }
+        }
+    }
+
+    /** Add the counts of another matrix over the same candidates into this one */
+    public PairwiseMatrix merge(@NotNull PairwiseMatrix other) {
+        if (!candidates.equals(other.candidates)) {
+            throw new IllegalArgumentException("Matrices must count the same candidates");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        for (int i = 0; i < size; i++) {
+            ranked[i] += other.ranked[i];
+        }
+        return this;
+    }
+
+    /** @return a matrix with the same counts, which can change independently of this one */
+    public PairwiseMatrix copy() {
+        return new PairwiseMatrix(candidates).merge(this);
+    }
+
+    public int size() { return size; }
+
+    public OptionIndex getCandidates() { return candidates; }
+
+    public Option candidate(int index) { return candidates.option(index); }
+
+    /** @return the index of the given candidate, or <code>-1</code> if it isn't a candidate */
+    public int indexOf(Option option) { return candidates.indexOf(option); }
+
+    /** @return the number of ballots preferring candidate <code>i</code> over candidate <code>j</code> */
+    public int count(int i, int j) { return i == j ? 0 : ranked[i] - counts[j * size + i]; }
+
+    /** @return how many more ballots prefer candidate <code>i</code> over <code>j</code> than the reverse */
+    public int margin(int i, int j) { return i == j ? 0 : ranked[i] - ranked[j] + counts[i * size + j] - counts[j * size + i]; }
+
+    private static class PartitionTally extends RecursiveTask<PairwiseMatrix> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final OptionIndex candidates;
+        private final Spliterator<? extends BallotProfile.Entry<? extends RankedVote>> votes;
+        private final int sequentialCutoff;
+
+        PartitionTally(OptionIndex candidates,
+                       Spliterator<? extends BallotProfile.Entry<? extends RankedVote>> votes,
+                       int sequentialCutoff) {
+            this.candidates = candidates;
+            this.votes = votes;
+            this.sequentialCutoff = sequentialCutoff;
+        }
+
+        @Override
+        protected PairwiseMatrix compute() {
+            if (votes.estimateSize() > sequentialCutoff) {
+                Spliterator<? extends BallotProfile.Entry<? extends RankedVote>> split = votes.trySplit();
+                if (split != null) {
+                    PartitionTally left = new PartitionTally(candidates, split, sequentialCutoff);
+                    left.fork();
+                    PairwiseMatrix right = new PartitionTally(candidates, votes, sequentialCutoff).compute();
+                    return right.merge(left.join());
+                }
+            }
+
+            PairwiseMatrix matrix = new PairwiseMatrix(candidates);
+            votes.forEachRemaining(entry -> matrix.add(entry.ballot(), entry.multiplicity()));
+            return matrix;
+        }
+    }
+}
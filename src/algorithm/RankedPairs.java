@@ -0,0 +1,168 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.BallotSource;
+import model.Option;
+import model.OptionIndex;
+import model.Race;
+import model.vote.RankedVote;
+import model.vote.Vote;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <a href="https://electowiki.org/wiki/Ranked_pairs">Ranked Pairs</a>, as described by Tideman.
+ * <br>
+ * Pairwise victories are sorted from strongest to weakest, and each is locked in
+ * unless it would complete a cycle with victories already locked.
+ * The winners are the candidates that no locked victory points to.
+ * <br>
+ * Victories are ordered by the number of ballots winning them, then by the fewest ballots opposing them.
+ * Victories that are still tied are ordered by candidate name, so the outcome is deterministic.
+ * Vetoed options are removed before any victory is locked.
+ * <br>
+ * Each candidate keeps the set of candidates reachable from it through locked victories, as a bitset,
+ * so checking whether a victory would complete a cycle is a single bit lookup,
+ * and locking a victory costs <code>O(k²/64)</code>.
+ */
+public class RankedPairs extends EvalAlgorithm<RankedVote> implements PairwiseAlgorithm {
+
+    private OptionIndex index;
+    private PairwiseMatrix headToHeads;
+    private BitSet candidates; // ids of options that weren't vetoed
+
+    public RankedPairs(Race race) {
+        super(race);
+    }
+
+    /** Uses {@link RankedVote#getRankings()} */
+    @Override
+    public RankedPairsResult evaluate(BallotProfile<RankedVote> profile) {
+        initializeCandidates();
+        for (BallotProfile.Entry<RankedVote> entry : profile) {
+            removeVetoes(entry.ballot());
+        }
+
+        headToHeads = PairwiseMatrix.of(index, profile);
+
+        return lockPairs();
+    }
+
+    /** Counts head-to-head matchups between all options in a single pass, then ignores vetoed options */
+    @Override
+    public RankedPairsResult evaluate(BallotSource<RankedVote> source) {
+        initializeCandidates();
+        headToHeads = new PairwiseMatrix(index);
+        for (RankedVote vote : source) {
+            headToHeads.add(vote);
+            removeVetoes(vote);
+        }
+
+        return lockPairs();
+    }
+
+    @Override
+    public RankedPairsResult evaluate(PairwiseMatrix headToHeads, BitSet candidates) {
+        index = headToHeads.getCandidates();
+        this.candidates = candidates;
+        this.headToHeads = headToHeads;
+
+        return lockPairs();
+    }
+
+    @Override
+    public int streamingPasses() { return 1; }
+
+    private void initializeCandidates() {
+        index = new OptionIndex(race);
+        candidates = new BitSet(index.size());
+        candidates.set(0, index.size());
+    }
+
+    private void removeVetoes(Vote vote) {
+        for (Option veto : vote.getVetoes()) {
+            int id = index.indexOf(veto);
+            if (id >= 0) {
+                candidates.clear(id);
+            }
+        }
+    }
+
+    private RankedPairsResult lockPairs() {
+        List<RankedPairsResult.Victory> victories = new ArrayList<>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            for (int j = candidates.nextSetBit(0); j >= 0; j = candidates.nextSetBit(j + 1)) {
+                int wins = headToHeads.count(i, j);
+                int losses = headToHeads.count(j, i);
+                if (wins > losses) {
+                    victories.add(new RankedPairsResult.Victory(index.option(i), index.option(j), wins, losses));
+                }
+            }
+        }
+        // Ids are in name order, so a stable sort leaves tied victories in name order
+        victories.sort(Comparator.comparingInt(RankedPairsResult.Victory::votesFor).reversed()
+                .thenComparingInt(RankedPairsResult.Victory::votesAgainst));
+
+        Reachability reachability = new Reachability(index.size());
+        BitSet defeated = new BitSet(index.size());
+        List<RankedPairsResult.Victory> locked = new ArrayList<>();
+        for (RankedPairsResult.Victory victory : victories) {
+            int winner = index.indexOf(victory.winner());
+            int loser = index.indexOf(victory.loser());
+            if (reachability.reaches(loser, winner)) { continue; }
+
+            reachability.link(winner, loser);
+            defeated.set(loser);
+            locked.add(victory);
+        }
+
+        Set<Option> winners = new HashSet<>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (!defeated.get(i)) {
+                winners.add(index.option(i));
+            }
+        }
+        listener.winners(race, winners);
+        return new RankedPairsResult(winners, locked);
+    }
+
+    /**
+     * The transitive closure of a directed acyclic graph, kept up to date as edges are added.
+     * Row <code>i</code> is the set of nodes reachable from node <code>i</code>, including itself,
+     * packed into <code>long</code> words.
+     */
+    private static class Reachability {
+        private final int words;
+        private final long[] reachable;
+
+        Reachability(int size) {
+            this.words = (size + 63) >>> 6;
+            this.reachable = new long[size * words];
+            for (int i = 0; i < size; i++) {
+                reachable[i * words + (i >>> 6)] |= 1L << i;
+            }
+        }
+
+        boolean reaches(int from, int to) {
+            return (reachable[from * words + (to >>> 6)] & (1L << to)) != 0;
+        }
+
+        /** Add an edge; everything that reaches <code>from</code> now reaches everything <code>to</code> reaches */
+        void link(int from, int to) {
+            int size = reachable.length / words;
+            int toRow = to * words;
+            for (int node = 0; node < size; node++) {
+                int row = node * words;
+                if (!reaches(node, from)) { continue; }
+                for (int word = 0; word < words; word++) {
+                    reachable[row + word] |= reachable[toRow + word];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package algorithm;
+
+import model.Option;
+import model.Result;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The winners of a {@link RankedPairs} election, along with the graph of pairwise victories that were locked in.
+ */
+public class RankedPairsResult extends Result {
+
+    private final List<Victory> locked;
+
+    RankedPairsResult(Set<Option> winners, List<Victory> locked) {
+        super(winners, null);
+        this.locked = List.copyOf(locked);
+    }
+
+    /** @return the locked victories, in the order they were locked, from strongest to weakest */
+    public List<Victory> getLockedVictories() { return locked; }
+
+    /** @return for each candidate with a locked victory, the candidates it was locked in over */
+    public Map<Option, Set<Option>> getLockedGraph() {
+        Map<Option, Set<Option>> graph = new HashMap<>();
+        for (Victory victory : locked) {
+            graph.computeIfAbsent(victory.winner(), option -> new HashSet<>()).add(victory.loser());
+        }
+        return graph;
+    }
+
+    /**
+     * @param votesFor the number of ballots preferring the winner over the loser
+     * @param votesAgainst the number of ballots preferring the loser over the winner
+     */
+    public record Victory(@NotNull Option winner, @NotNull Option loser, int votesFor, int votesAgainst) {}
+}
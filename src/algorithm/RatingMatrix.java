@@ -0,0 +1,79 @@
+package algorithm;
+
+import model.vote.RatingVector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The raw ratings of weighted votes, packed into a row-major <code>double[]</code> with a row per distinct ballot
+ * and a column per option id, unrated options being <code>0.0</code>,
+ * so that score-style sums run as {@link TallyKernels} over contiguous memory rather than rating by rating.
+ * <br>
+ * A dense matrix only pays while ballots rate a good share of the options; sparse ballots are better counted one by one.
+ * The sums here reuse scratch arrays, so a matrix is for one thread at a time.
+ */
+final class RatingMatrix {
+
+    private final int columns;
+    private final double[] ratings;
+    private final double[] weights; // the number of voters who cast each row's ballot
+    private final double[] mask; // scratch: by column
+    private final double[] rowScratch;
+    private final double[] columnScratch;
+    private final double[] absoluteScratch;
+    private TallyKernels kernels = TallyKernels.preferred();
+
+    RatingMatrix(int columns, List<RatingVector> rows, double[] weights) {
+        this.columns = columns;
+        this.ratings = new double[rows.size() * columns];
+        this.weights = weights;
+        for (int row = 0; row < rows.size(); row++) {
+            RatingVector vector = rows.get(row);
+            for (int position = 0; position < vector.size(); position++) {
+                ratings[row * columns + vector.id(position)] = vector.rating(position);
+            }
+        }
+        this.mask = new double[columns];
+        this.rowScratch = new double[rows.size()];
+        this.columnScratch = new double[columns];
+        this.absoluteScratch = new double[columns];
+    }
+
+    /** @param kernels the kernels to sum with; {@link TallyKernels#preferred()} by default */
+    void setKernels(@NotNull TallyKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    public int rows() { return weights.length; }
+
+    public int columns() { return columns; }
+
+    /**
+     * Add each option's score, in votes, as if only the given candidates remained:
+     * each ballot is divided by the sum of the absolute values of its ratings of the candidates, so it's worth one vote.
+     * Ballots that rate none of the candidates count for nothing.
+     *
+     * @param scores added to, by option id; not for the options that aren't candidates
+     * @param absoluteScores if not <code>null</code>, added to with the absolute values of the ratings counted
+     */
+    public void addNormalizedScores(@NotNull BitSet candidates, double[] scores, @Nullable double[] absoluteScores) {
+        for (int column = 0; column < columns; column++) {
+            mask[column] = candidates.get(column) ? 1.0 : 0.0;
+        }
+        kernels.absoluteRowSums(ratings, columns, mask, rowScratch);
+        for (int row = 0; row < rowScratch.length; row++) {
+            double scale = weights[row] / rowScratch[row];
+            rowScratch[row] = Double.isFinite(scale) ? scale : 0.0;
+        }
+        kernels.columnSums(ratings, columns, rowScratch, columnScratch, absoluteScores == null ? null : absoluteScratch);
+        for (int column = candidates.nextSetBit(0); column >= 0 && column < columns; column = candidates.nextSetBit(column + 1)) {
+            scores[column] += columnScratch[column];
+            if (absoluteScores != null) {
+                absoluteScores[column] += absoluteScratch[column];
+            }
+        }
+    }
+}
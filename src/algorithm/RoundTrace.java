@@ -0,0 +1,130 @@
+package algorithm;
+
+import model.Option;
+import model.OptionIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jfree.data.flow.DefaultFlowDataset;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A compact record of a multi-round count, kept in primitive arrays indexed by round and option id.
+ * <br>
+ * Each round records every remaining candidate's score once its votes were counted,
+ * the candidates eliminated at the end of the round,
+ * and the vote weight that moved to each remaining candidate from the candidates eliminated the round before.
+ * Rounds are numbered from <code>1</code>.
+ */
+public class RoundTrace {
+
+    private final OptionIndex candidates;
+    private final int size;
+    private int rounds;
+    private double[][] standings = new double[4][]; // by round, then option id; NaN for candidates out of the race
+    private int[][] eliminated = new int[4][]; // by round, the ids eliminated at its end, in ascending order
+    private double[][] transfers = new double[4][]; // by round, then position among the last round's eliminated * size + option id
+
+    RoundTrace(@NotNull OptionIndex candidates) {
+        this.candidates = candidates;
+        this.size = candidates.size();
+    }
+
+    void startRound() {
+        if (rounds == standings.length) {
+            standings = Arrays.copyOf(standings, rounds * 2);
+            eliminated = Arrays.copyOf(eliminated, rounds * 2);
+            transfers = Arrays.copyOf(transfers, rounds * 2);
+        }
+        eliminated[rounds] = new int[0];
+        if (rounds > 0) {
+            transfers[rounds] = new double[eliminated[rounds - 1].length * size];
+        }
+        rounds++;
+    }
+
+    /** Record the fixed-point scores of the remaining candidates for the current round */
+    void recordStandings(long[] scores, BitSet remaining) {
+        double[] round = new double[size];
+        Arrays.fill(round, Double.NaN);
+        for (int option = remaining.nextSetBit(0); option >= 0; option = remaining.nextSetBit(option + 1)) {
+            round[option] = FixedPoint.toDouble(scores[option]);
+        }
+        standings[rounds - 1] = round;
+    }
+
+    void recordEliminated(BitSet losers) {
+        eliminated[rounds - 1] = losers.stream().toArray();
+    }
+
+    /** @param loser the position of the loser among the candidates eliminated the round before */
+    void addTransfer(int loser, int option, double weight) {
+        transfers[rounds - 1][loser * size + option] += weight;
+    }
+
+    public OptionIndex getCandidates() { return candidates; }
+
+    public int rounds() { return rounds; }
+
+    /** @return the score of the candidate in the given round, or <code>NaN</code> if it was no longer in the race */
+    public double standing(int round, int option) {
+        double[] scores = standings[round - 1];
+        return scores == null ? Double.NaN : scores[option];
+    }
+
+    /** @return the ids of the candidates eliminated at the end of the given round */
+    public int[] eliminated(int round) { return eliminated[round - 1].clone(); }
+
+    /**
+     * @param from a candidate eliminated at the end of the round before the given round
+     * @return the vote weight that moved from that candidate to the given candidate during the given round
+     */
+    public double transfer(int round, int from, int to) {
+        if (round < 2) { return 0.0; }
+        int loser = Arrays.binarySearch(eliminated[round - 2], from);
+        return loser < 0 ? 0.0 : transfers[round - 1][loser * size + to];
+    }
+
+    /**
+     * Chart the count as flows between rounds: each remaining candidate keeps its previous score,
+     * and each eliminated candidate's votes flow to the candidates they transferred to.
+     */
+    public DefaultFlowDataset<WeightedRunoff.ScoredOption> toFlowDataset() {
+        DefaultFlowDataset<WeightedRunoff.ScoredOption> data = new DefaultFlowDataset<>();
+        for (int round = 2; round <= rounds; round++) {
+            int stage = round - 1;
+            double[] previous = standings[round - 2];
+            double[] current = standings[round - 1];
+            if (previous == null || current == null) { continue; }
+
+            for (int option = 0; option < size; option++) {
+                if (Double.isNaN(current[option])) { continue; }
+                data.setFlow(stage,
+                        source(stage, option, previous),
+                        new WeightedRunoff.ScoredOption(candidates.option(option), current[option]),
+                        previous[option]);
+            }
+
+            int[] losers = eliminated[round - 2];
+            double[] moved = transfers[round - 1];
+            for (int loser = 0; loser < losers.length; loser++) {
+                WeightedRunoff.ScoredOption from = source(stage, losers[loser], previous);
+                for (int option = 0; option < size; option++) {
+                    double weight = moved[loser * size + option];
+                    if (weight == 0.0 || Double.isNaN(current[option])) { continue; }
+                    data.setFlow(stage,
+                            from,
+                            new WeightedRunoff.ScoredOption(candidates.option(option), current[option]),
+                            weight);
+                }
+            }
+        }
+        return data;
+    }
+
+    // The first stage's sources aren't the destinations of an earlier stage, so they aren't scored
+    private WeightedRunoff.ScoredOption source(int stage, int option, double[] previous) {
+        Option from = candidates.option(option);
+        return new WeightedRunoff.ScoredOption(from, stage > 1 ? previous[option] : 0.0);
+    }
+}
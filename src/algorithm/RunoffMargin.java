@@ -0,0 +1,281 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.Option;
+import model.OptionIndex;
+import model.vote.SimpleRankingVote;
+import model.vote.Vote;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the {@link MarginOfVictory margin of victory} of the last count of a {@link WeightedRunoff},
+ * from the state it kept of that count.
+ * <br>
+ * The lower bound is found by branch and bound over elimination orders.
+ * A changed ballot moves the difference between any two candidates' scores by at most two votes, in every round,
+ * so eliminating a candidate that trails another by a gap needs at least half that gap in changed ballots,
+ * and an elimination order needs at least the most that any of its rounds needs.
+ * Orders are extended cheapest first, so the first order found that eliminates the winner,
+ * or that gives a rival an outright win, is the cheapest.
+ * Trailing candidates that every count with fewer changed ballots than the upper bound eliminates next
+ * are eliminated together, so orders that differ only in how they drop hopeless candidates aren't searched.
+ * An exact tie that eliminates several candidates at once is searched as if they were eliminated one by one.
+ * Orders needing at least the upper bound are pruned, and the search settles for the cheapest unexplored order
+ * once it has scored too many sets of remaining candidates, or run for half a second,
+ * so that large races still answer within an interaction's time limit.
+ * Both searches also stop, with looser bounds, once the given cancellation token is cancelled.
+ * <br>
+ * The upper bound is found by construction: the ballots that most support the winner in the last round
+ * are replaced with ballots ranking only a finalist, and the race is recounted to confirm that the winners changed.
+ */
+class RunoffMargin {
+
+    private static final int MAX_STATES = 4096; // sets of remaining candidates to score before settling for a bound
+    private static final long SEARCH_NANOS = TimeUnit.MILLISECONDS.toNanos(500); // time to search before settling, likewise
+    private static final int RIVALS = 3; // finalists to try to elect, to find an upper bound
+    private static final double TOLERANCE = 1e-6; // votes of rounding error allowed per ballot
+
+    private final WeightedRunoff runoff;
+    private final OptionIndex index;
+    private final BallotProfile<Vote> profile;
+    private final double[] scores;
+    private final double[] movable;
+    private final CancellationToken cancellation;
+
+    RunoffMargin(WeightedRunoff runoff, CancellationToken cancellation) {
+        this.runoff = runoff;
+        this.cancellation = cancellation;
+        this.index = runoff.index();
+        this.profile = runoff.profile();
+        this.scores = new double[index.size()];
+        this.movable = new double[index.size()];
+    }
+
+    MarginOfVictory find() {
+        Set<Option> winners = runoff.winners();
+        BitSet eligible = runoff.eligible();
+        if (eligible.cardinality() < 2) {
+            return new MarginOfVictory(MarginOfVictory.UNKNOWN, MarginOfVictory.UNKNOWN); // no preferences could change it
+        }
+
+        int winner = index.idsOf(winners).nextSetBit(0);
+        int upper = upperBound(winner, eligible);
+        if (winners.size() > 1) {
+            return new MarginOfVictory(Math.min(1, upper), upper); // a tie might be broken by any ballot
+        }
+        int lower = runoff.isInstantRunoff() ? lowerBound(winner, eligible, upper) : singleRoundLowerBound(winner, eligible);
+        return new MarginOfVictory(Math.min(lower, upper), upper);
+    }
+
+    /** A single-round count changes once any rival's score reaches the winner's */
+    private int singleRoundLowerBound(int winner, BitSet eligible) {
+        runoff.score(eligible, scores);
+        int lower = MarginOfVictory.UNKNOWN;
+        for (int rival = eligible.nextSetBit(0); rival >= 0; rival = eligible.nextSetBit(rival + 1)) {
+            if (rival != winner) {
+                lower = Math.min(lower, MarginOfVictory.ballotsToClose(scores[winner] - scores[rival]));
+            }
+        }
+        return lower;
+    }
+
+    private int lowerBound(int winner, BitSet eligible, int upper) {
+        // orders needing the upper bound or more are pruned, so only fewer changed ballots need be considered
+        int changed = upper == MarginOfVictory.UNKNOWN ? profile.voters() : upper - 1;
+        PriorityQueue<Order> orders = new PriorityQueue<>(Comparator.comparingInt(Order::cost)
+                .thenComparingInt(order -> order.remaining.cardinality()));
+        orders.add(new Order(eligible, 0, false));
+        Set<BitSet> explored = new HashSet<>();
+        long deadline = System.nanoTime() + SEARCH_NANOS;
+        while (!orders.isEmpty()) {
+            Order order = orders.poll();
+            if (order.cost >= upper || order.changesWinner) {
+                return Math.max(1, order.cost);
+            }
+            if (!explored.add(order.remaining)) { continue; }
+            if (explored.size() > MAX_STATES || System.nanoTime() - deadline > 0 || cancellation.isCancelled()) {
+                return Math.max(1, order.cost); // every unexplored order needs at least this many; and one winner needs one
+            }
+            extend(order, winner, changed, orders);
+        }
+        return upper;
+    }
+
+    /** Add every order that continues the given order by a round, with no more than the given number of changed ballots */
+    private void extend(Order order, int winner, int changed, PriorityQueue<Order> orders) {
+        BitSet remaining = order.remaining;
+        runoff.score(remaining, scores, movable);
+        double scoreToWin = runoff.scoreToWin(remaining);
+
+        BitSet defeated = defeated(remaining, winner, scoreToWin, changed);
+        if (!defeated.isEmpty()) { // every order eliminates these next, so the others needn't be searched
+            BitSet next = (BitSet) remaining.clone();
+            next.andNot(defeated);
+            if (next.cardinality() > 1) {
+                orders.add(new Order(next, order.cost, false));
+            }
+            return;
+        }
+
+        // the count only goes on if nobody wins outright; a rival that does changes the winner
+        int continuing = order.cost;
+        int lowest = -1;
+        int secondLowest = -1;
+        for (int option = remaining.nextSetBit(0); option >= 0; option = remaining.nextSetBit(option + 1)) {
+            continuing = Math.max(continuing, MarginOfVictory.ballotsToClose(scores[option] - scoreToWin));
+            if (option != winner) {
+                int outright = Math.max(order.cost, MarginOfVictory.ballotsToPass(scoreToWin - scores[option]));
+                orders.add(new Order(remaining, outright, true));
+            }
+            if (lowest < 0 || scores[option] < scores[lowest]) {
+                secondLowest = lowest;
+                lowest = option;
+            } else if (secondLowest < 0 || scores[option] < scores[secondLowest]) {
+                secondLowest = option;
+            }
+        }
+
+        for (int loser = remaining.nextSetBit(0); loser >= 0; loser = remaining.nextSetBit(loser + 1)) {
+            double trailing = scores[loser == lowest ? secondLowest : lowest];
+            int cost = Math.max(continuing, MarginOfVictory.ballotsToClose(scores[loser] - trailing));
+            if (loser == winner) {
+                orders.add(new Order(remaining, cost, true));
+            } else if (remaining.cardinality() > 2) { // eliminating the last rival leaves the winner
+                BitSet next = (BitSet) remaining.clone();
+                next.clear(loser);
+                orders.add(new Order(next, cost, false));
+            }
+        }
+    }
+
+    /**
+     * Find the trailing candidates that every count is sure to eliminate next, with up to the given number of changed ballots,
+     * by the same reasoning as {@link WeightedRunoff}'s bulk elimination.
+     * Each changed ballot may add a vote to a trailing candidate, to the weight that could move,
+     * and take a vote from a candidate above them, so each widens the margin needed by three votes.
+     *
+     * @return the largest such group of trailing candidates, which never includes the winner, and may be empty
+     */
+    private BitSet defeated(BitSet remaining, int winner, double scoreToWin, int changed) {
+        int[] order = remaining.stream()
+                .boxed()
+                .sorted(Comparator.comparingDouble(option -> scores[option]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        double slack = 3.0 * changed + TOLERANCE * profile.voters();
+        double highestScore = scores[order[order.length - 1]];
+
+        double trailingWeight = 0.0;
+        double highestFloor = Double.NEGATIVE_INFINITY;
+        double lowestScoreToWin = scoreToWin;
+        int defeated = 0;
+        for (int trailing = 1; trailing < order.length && order[trailing - 1] != winner; trailing++) {
+            int option = order[trailing - 1];
+            trailingWeight += movable[option];
+            highestFloor = Math.max(highestFloor, scores[option] - movable[option]);
+            lowestScoreToWin -= Math.max(runoff.shadowWeight(option), 0.0);
+
+            boolean cannotCatchUp = highestFloor + trailingWeight + slack < scores[order[trailing]];
+            boolean cannotWinMeanwhile = highestScore + trailingWeight + slack <= lowestScoreToWin;
+            if (cannotCatchUp && cannotWinMeanwhile) {
+                defeated = trailing;
+            }
+        }
+
+        BitSet losers = new BitSet(index.size());
+        for (int trailing = 0; trailing < defeated; trailing++) {
+            losers.set(order[trailing]);
+        }
+        return losers;
+    }
+
+    /** @return the fewest ballots found to change the winner, by replacing the winner's strongest support with a finalist */
+    private int upperBound(int winner, BitSet eligible) {
+        BitSet finalists = runoff.finalists();
+        runoff.score(finalists, scores);
+        double[] finalScores = scores.clone();
+        runoff.score(eligible, scores);
+        Integer[] rivals = eligible.stream()
+                .filter(option -> option != winner)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingInt(option -> finalists.get(option) ? 0 : 1)
+                        .thenComparingDouble(option -> -finalScores[option])
+                        .thenComparingDouble(option -> -scores[option]))
+                .limit(RIVALS)
+                .toArray(Integer[]::new);
+
+        // distinct ballots, most support for the winner first
+        List<BallotProfile.Entry<Vote>> entries = profile.entries();
+        double[] support = new double[entries.size()];
+        List<Integer> supporters = new ArrayList<>();
+        for (int ballot = 0; ballot < entries.size(); ballot++) {
+            Vote vote = entries.get(ballot).ballot();
+            if (vote.isShadow() || !vote.getVetoes().isEmpty()) { continue; } // a replacement ballot vetoes nothing
+            support[ballot] = runoff.score(ballot, winner, finalists);
+            if (support[ballot] > 0.0) {
+                supporters.add(ballot);
+            }
+        }
+        supporters.sort(Comparator.comparingDouble(ballot -> -support[ballot]));
+        int available = supporters.stream().mapToInt(ballot -> entries.get(ballot).multiplicity()).sum();
+
+        int upper = MarginOfVictory.UNKNOWN;
+        for (int rival : rivals) {
+            if (cancellation.isCancelled()) { break; }
+            SimpleRankingVote replacement = new SimpleRankingVote("margin of victory");
+            replacement.select(List.of(index.option(rival)));
+
+            int most = Math.min(available, upper - 1);
+            if (most < 1) { continue; }
+
+            // the gap between them in the last round is a first guess; double it until the winners change
+            int fewest = 1;
+            int guess = Math.max(1, Math.min(most, MarginOfVictory.ballotsToPass(finalScores[winner] - finalScores[rival])));
+            while (!changesWinners(supporters, replacement, guess)) {
+                fewest = guess + 1;
+                if (guess == most || cancellation.isCancelled()) { break; }
+                guess = (int) Math.min(most, 2L * guess);
+            }
+            if (fewest > guess) { continue; }
+            most = guess;
+            while (fewest < most && !cancellation.isCancelled()) { // assumes that replacing more ballots helps the rival at least as much
+                int middle = (fewest + most) >>> 1;
+                if (changesWinners(supporters, replacement, middle)) {
+                    most = middle;
+                } else {
+                    fewest = middle + 1;
+                }
+            }
+            upper = most;
+        }
+        return upper;
+    }
+
+    /** @return whether replacing the given number of copies of the first supporting ballots changes the winners */
+    private boolean changesWinners(List<Integer> supporters, Vote replacement, int replaced) {
+        int[] multiplicities = new int[profile.size()];
+        for (int ballot = 0; ballot < multiplicities.length; ballot++) {
+            multiplicities[ballot] = profile.entries().get(ballot).multiplicity();
+        }
+        int remaining = replaced;
+        for (int ballot : supporters) {
+            int copies = Math.min(remaining, multiplicities[ballot]);
+            multiplicities[ballot] -= copies;
+            remaining -= copies;
+            if (remaining == 0) { break; }
+        }
+
+        BallotProfile<Vote> changed = profile.withMultiplicities(multiplicities).plus(replacement, replaced);
+        return !runoff.recount(changed).equals(runoff.winners());
+    }
+
+    /**
+     * The start of an elimination order
+     * @param remaining the candidates not yet eliminated
+     * @param cost the fewest changed ballots that could bring the count this far
+     * @param changesWinner whether the order has already eliminated the winner, or elected a rival
+     */
+    private record Order(BitSet remaining, int cost, boolean changesWinner) {}
+}
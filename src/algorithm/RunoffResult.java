@@ -0,0 +1,96 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.Option;
+import model.Race;
+import model.Result;
+import model.vote.Vote;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jfree.data.flow.DefaultFlowDataset;
+
+import java.util.Set;
+
+/**
+ * The winners of a {@link WeightedRunoff} election, along with a {@link RoundTrace trace} of its rounds.
+ * The trace is only charted when {@link RunoffResult#getData()} is first called.
+ * The margin of victory and what-if recounts are found from the state the count left behind,
+ * so the runoff is kept while this result is.
+ */
+public class RunoffResult extends Result {
+
+    private final WeightedRunoff runoff;
+    private final BallotProfile<Vote> profile; // the ballots counted
+    private final RoundTrace trace;
+    private DefaultFlowDataset<WeightedRunoff.ScoredOption> data;
+    private MarginOfVictory margin; // null until found without being cut short
+
+    RunoffResult(WeightedRunoff runoff, Set<Option> winners, @Nullable RoundTrace trace) {
+        super(winners, null);
+        this.runoff = runoff;
+        this.profile = runoff.profile();
+        this.trace = trace;
+    }
+
+    /** @return the trace of each round, or <code>null</code> if the count wasn't traced */
+    @Nullable
+    public RoundTrace getTrace() { return trace; }
+
+    /** @return a chart of the flow of votes between rounds, or <code>null</code> if the count wasn't traced */
+    @Nullable
+    @Override
+    public synchronized DefaultFlowDataset<WeightedRunoff.ScoredOption> getData() {
+        if (data == null && trace != null) {
+            data = trace.toFlowDataset();
+        }
+        return data;
+    }
+
+    /**
+     * Find how many ballots would have to change for these winners to change, without counting the ballots again.
+     * A margin found without being cut short is kept, so it's only found once.
+     *
+     * @param cancellation once cancelled, the margin settles for the bounds found so far
+     * @throws IllegalStateException if the runoff has since evaluated other ballots
+     * @see WeightedRunoff#marginOfVictory()
+     */
+    @NotNull
+    public MarginOfVictory marginOfVictory(@NotNull CancellationToken cancellation) {
+        synchronized (runoff) { // the search scores ballots with the runoff's scratch space
+            if (margin != null) {
+                return margin;
+            }
+            if (runoff.profile() != profile) {
+                throw new IllegalStateException("The runoff has since evaluated other ballots");
+            }
+            MarginOfVictory found = new RunoffMargin(runoff, cancellation).find();
+            if (!cancellation.isCancelled()) {
+                margin = found;
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Recount the ballots as if the given option had been vetoed, from the state the count left behind
+     * @return the winners of the recount, or <code>null</code> if the runoff has since evaluated other ballots
+     * @see WeightedRunoff#winnersWithout(int)
+     */
+    @Nullable
+    Set<Option> winnersWithout(@NotNull Option option) {
+        synchronized (runoff) {
+            if (runoff.profile() != profile) {
+                return null;
+            }
+            int id = runoff.index().indexOf(option);
+            return id < 0 ? getWinners() : runoff.winnersWithout(id);
+        }
+    }
+
+    /** @return the race counted, which a pre-pass may have narrowed from the race evaluated */
+    Race race() { return runoff.race; }
+
+    /** @return the ballots counted */
+    @NotNull
+    public BallotProfile<Vote> profile() { return profile; }
+}
@@ -0,0 +1,214 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.BallotSource;
+import model.Option;
+import model.OptionIndex;
+import model.Race;
+import model.vote.RankedVote;
+import model.vote.Vote;
+
+import java.io.Serial;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The <a href="https://electowiki.org/wiki/Schulze_method">Schulze method</a>.
+ * <br>
+ * The strength of a path between two candidates is its weakest pairwise victory,
+ * and a candidate wins if its strongest path to every opponent is at least as strong as the reverse.
+ * Strongest paths are found with a widest-path Floyd–Warshall closure over a flat <code>int[]</code>.
+ * Vetoed options are removed before paths are found, so no path runs through them.
+ */
+public class Schulze extends EvalAlgorithm<RankedVote> implements PairwiseAlgorithm {
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int parallelThreshold = 200;
+    private OptionIndex index;
+    private PairwiseMatrix headToHeads;
+    private BitSet candidates; // ids of options that weren't vetoed
+
+    public Schulze(Race race) {
+        super(race);
+    }
+
+    /** Uses {@link RankedVote#getRankings()} */
+    @Override
+    public SchulzeResult evaluate(BallotProfile<RankedVote> profile) {
+        initializeCandidates();
+        for (BallotProfile.Entry<RankedVote> entry : profile) {
+            removeVetoes(entry.ballot());
+        }
+
+        headToHeads = PairwiseMatrix.of(index, profile);
+
+        return findStrongestPaths();
+    }
+
+    /** Counts head-to-head matchups between all options in a single pass, then ignores vetoed options */
+    @Override
+    public SchulzeResult evaluate(BallotSource<RankedVote> source) {
+        initializeCandidates();
+        headToHeads = new PairwiseMatrix(index);
+        for (RankedVote vote : source) {
+            headToHeads.add(vote);
+            removeVetoes(vote);
+        }
+
+        return findStrongestPaths();
+    }
+
+    @Override
+    public SchulzeResult evaluate(PairwiseMatrix headToHeads, BitSet candidates) {
+        index = headToHeads.getCandidates();
+        this.candidates = candidates;
+        this.headToHeads = headToHeads;
+
+        return findStrongestPaths();
+    }
+
+    @Override
+    public int streamingPasses() { return 1; }
+
+    /**
+     * @param parallelism the number of threads to find strongest paths with; <code>1</code> to always run sequentially
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param parallelThreshold races with fewer candidates than this find their strongest paths sequentially
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be positive");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    private void initializeCandidates() {
+        index = new OptionIndex(race);
+        candidates = new BitSet(index.size());
+        candidates.set(0, index.size());
+    }
+
+    private void removeVetoes(Vote vote) {
+        for (Option veto : vote.getVetoes()) {
+            int id = index.indexOf(veto);
+            if (id >= 0) {
+                candidates.clear(id);
+            }
+        }
+    }
+
+    private SchulzeResult findStrongestPaths() {
+        OptionIndex remaining = new OptionIndex(index.optionsOf(candidates));
+        int size = remaining.size();
+
+        // Ids in the remaining index keep the same relative order as in the full index
+        int[] ids = candidates.stream().toArray();
+        int[] paths = new int[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i == j) { continue; }
+                int wins = headToHeads.count(ids[i], ids[j]);
+                if (wins > headToHeads.count(ids[j], ids[i])) {
+                    paths[i * size + j] = wins;
+                }
+            }
+        }
+
+        if (parallelism > 1 && size >= parallelThreshold) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (int via = 0; via < size; via++) {
+                    pool.invoke(new WidenRows(paths, size, via, 0, size));
+                }
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            for (int via = 0; via < size; via++) {
+                widenRows(paths, size, via, 0, size);
+            }
+        }
+
+        Set<Option> winners = determineWinners(paths, remaining);
+        listener.winners(race, winners);
+        return new SchulzeResult(winners, remaining, paths);
+    }
+
+    /**
+     * Widen the paths of each row in <code>[from, to)</code> by routing them through <code>via</code>.
+     * Neither row <code>via</code> nor column <code>via</code> changes, so rows can be widened independently.
+     */
+    private static void widenRows(int[] paths, int size, int via, int from, int to) {
+        int viaRow = via * size;
+        for (int i = from; i < to; i++) {
+            int row = i * size;
+            int toVia = paths[row + via];
+            if (i == via || toVia == 0) { continue; }
+            for (int j = 0; j < size; j++) {
+                int through = Math.min(toVia, paths[viaRow + j]);
+                if (through > paths[row + j]) {
+                    paths[row + j] = through;
+                }
+            }
+            paths[row + i] = 0; // a path back to the start isn't a path
+        }
+    }
+
+    private static Set<Option> determineWinners(int[] paths, OptionIndex remaining) {
+        int size = remaining.size();
+        Set<Option> winners = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            boolean beaten = false;
+            for (int j = 0; j < size && !beaten; j++) {
+                beaten = paths[j * size + i] > paths[i * size + j];
+            }
+            if (!beaten) {
+                winners.add(remaining.option(i));
+            }
+        }
+        return winners;
+    }
+
+    private static class WidenRows extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private static final int ROWS_PER_TASK = 16;
+
+        private final int[] paths;
+        private final int size;
+        private final int via;
+        private final int from;
+        private final int to;
+
+        WidenRows(int[] paths, int size, int via, int from, int to) {
+            this.paths = paths;
+            this.size = size;
+            this.via = via;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                widenRows(paths, size, via, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new WidenRows(paths, size, via, from, middle),
+                    new WidenRows(paths, size, via, middle, to));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package algorithm;
+
+import model.Option;
+import model.OptionIndex;
+import model.Result;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * The winners of a {@link Schulze} election, along with the strongest path between every pair of candidates,
+ * so that the outcome can be explained.
+ */
+public class SchulzeResult extends Result {
+
+    private final OptionIndex candidates;
+    private final int[] strongestPaths;
+
+    SchulzeResult(Set<Option> winners, OptionIndex candidates, int[] strongestPaths) {
+        super(winners, null);
+        this.candidates = candidates;
+        this.strongestPaths = strongestPaths;
+    }
+
+    /** @return the candidates that weren't vetoed, indexing the rows and columns of the strongest-path matrix */
+    public OptionIndex getCandidates() { return candidates; }
+
+    /**
+     * @return the strength of the strongest path from candidate <code>i</code> to candidate <code>j</code>:
+     * the largest number of ballots such that a chain of pairwise victories, each won with at least that many ballots,
+     * leads from <code>i</code> to <code>j</code>; or <code>0</code> if there is no such chain
+     */
+    public int strongestPath(int i, int j) { return strongestPaths[i * candidates.size() + j]; }
+
+    /** @see SchulzeResult#strongestPath(int, int) */
+    public int strongestPath(@NotNull Option from, @NotNull Option to) {
+        int i = candidates.indexOf(from);
+        int j = candidates.indexOf(to);
+        if (i < 0 || j < 0) {
+            throw new IllegalArgumentException("Not a candidate: " + (i < 0 ? from : to).name());
+        }
+        return strongestPath(i, j);
+    }
+
+    /** @return a copy of the row-major strongest-path matrix */
+    public int[] getStrongestPaths() { return strongestPaths.clone(); }
+}
@@ -1,47 +1,84 @@
 package algorithm;
 
+import model.BallotProfile;
+import model.BallotSource;
 import model.Option;
+import model.OptionIndex;
 import model.Race;
 import model.Result;
-import model.vote.SingleVote;
 import model.vote.Vote;
 
 import java.util.*;
 
 public class SingleChoice extends EvalAlgorithm<Vote> {
 
+    private OptionIndex index;
+    private long[] count;
+    private BitSet vetoed;
+
     public SingleChoice(Race race) {
         super(race);
     }
 
     @Override
-    public Result evaluate(Set<Vote> votes) {
-        Map<Option, Integer> count = new HashMap<>();
-        race.options().forEach(option -> count.put(option, 0));
-
-        votes.stream()
-                .map(Vote::toSingleVote)
-                .map(SingleVote::getVote)
-                .filter(Objects::nonNull)
-                .forEach(o -> count.put(o, count.get(o)+1));
-        votes.stream()
-                .map(Vote::getVetoes)
-                .flatMap(Set::stream)
-                .forEach(count::remove);
+    public Result evaluate(BallotProfile<Vote> profile) {
+        initializeCount();
+        for (BallotProfile.Entry<Vote> entry : profile) {
+            countVote(entry.ballot(), entry.multiplicity());
+        }
+        return pickWinners();
+    }
+
+    @Override
+    public Result evaluate(BallotSource<Vote> source) {
+        initializeCount();
+        for (Vote vote : source) {
+            countVote(vote, 1);
+        }
+        return pickWinners();
+    }
+
+    @Override
+    public int streamingPasses() { return 1; }
+
+    private void initializeCount() {
+        index = new OptionIndex(race);
+        count = new long[index.size()];
+        vetoed = new BitSet(index.size());
+    }
 
+    private void countVote(Vote vote, int multiplicity) {
+        int option = index.indexOf(vote.toSingleVote().getVote());
+        if (option >= 0) {
+            count[option] += multiplicity;
+        }
+        for (Option veto : vote.getVetoes()) {
+            int id = index.indexOf(veto);
+            if (id >= 0) {
+                vetoed.set(id);
+            }
+        }
+    }
+
+    private Result pickWinners() {
+        Set<Option> winners = determineWinners();
+        listener.winners(race, winners);
+        return new Result(winners, null);
+    }
+
+    private Set<Option> determineWinners() {
         Set<Option> winners = new HashSet<>();
-        int highest = 0;
-        for (Option option : count.keySet()) {
-            int number = count.get(option);
+        long highest = 0;
+        for (int option = vetoed.nextClearBit(0); option < index.size(); option = vetoed.nextClearBit(option + 1)) {
+            long number = count[option];
             if (number > highest) {
                 winners = new HashSet<>();
-                winners.add(option);
+                winners.add(index.option(option));
                 highest = number;
             } else if (number == highest) {
-                winners.add(option);
+                winners.add(index.option(option));
             }
         }
-
-        return new Result(winners, null);
+        return winners;
     }
 }
@@ -0,0 +1,292 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.Option;
+import model.OptionIndex;
+import model.Race;
+import model.Result;
+import model.vote.RankedVote;
+import model.vote.RatingVector;
+import model.vote.Vote;
+import model.vote.WeightedVote;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * The <a href="https://electowiki.org/wiki/Single_transferable_vote">single transferable vote</a>,
+ * which elects several winners, one per seat.
+ * <br>
+ * Each ballot counts toward its highest choice that is still hopeful.
+ * A candidate is elected once its votes reach the Droop quota, <code>floor(votes / (seats + 1)) + 1</code>.
+ * Its surplus over the quota then transfers by the Gregory method: every ballot counting toward it
+ * moves on to its next hopeful choice, keeping only the fraction of its value that the surplus is of the candidate's votes.
+ * While no surplus is left to transfer, the candidate with the fewest votes is eliminated,
+ * and its ballots move on at their full value.
+ * <br>
+ * Ballot values are fixed-point <code>long</code>s, rounded down at each transfer, so that ties are exact.
+ * They're kept in a primitive array by distinct ballot, and each candidate keeps a pile of the ballots counting toward it,
+ * so electing or eliminating a candidate only re-examines the ballots in its pile.
+ * <br>
+ * A weighted vote ranks the options it rated above zero, highest first, and equal ratings in name order.
+ * Shadow votes aren't counted,
+ * and vetoed options are removed first.
+ * If candidates tie for the last seat, they are all among the winners, so there may be more winners than seats.
+ */
+public class SingleTransferableVote extends EvalAlgorithm<Vote> {
+
+    private final int seats;
+    private int round;
+    private OptionIndex index;
+    private int[][] choices; // hopeful-or-not choices of each distinct ballot, in order of preference
+    private int[] multiplicities;
+    private long[] values; // fixed-point value of a single copy of each distinct ballot
+    private int[] cursors; // position in its choices of the candidate each ballot counts toward
+    private int[][] piles; // distinct ballots counting toward each candidate, by option id
+    private int[] pileSizes;
+    private long[] tallies; // fixed-point votes of each candidate
+    private BitSet hopeful; // ids of candidates neither elected nor eliminated
+    private BitSet elected;
+    private Queue<Integer> surpluses; // elected candidates whose surplus hasn't been transferred, most votes first
+    private long quota;
+    private long[] moved; // scratch: fixed-point votes moved to each candidate by a transfer
+
+    /** @param seats the number of winners to elect */
+    public SingleTransferableVote(Race race, int seats) {
+        super(race);
+        if (seats < 1) {
+            throw new IllegalArgumentException("Seats must be positive");
+        }
+        this.seats = seats;
+    }
+
+    /** Uses {@link RankedVote#getRankings()}, or a single vote's choice */
+    @Override
+    public Result evaluate(BallotProfile<Vote> profile) {
+        initializeBallots(profile);
+
+        round = 0;
+        Set<Option> winners = null;
+        while (winners == null) {
+            listener.roundStarted(race, ++round);
+            reportStandings();
+            winners = evaluateRound();
+        }
+
+        listener.winners(race, winners);
+        return new Result(winners, null);
+    }
+
+    public int getSeats() { return seats; }
+
+    /** Intern each ballot's choices, remove vetoed candidates, and seat every ballot with its first choice */
+    private void initializeBallots(BallotProfile<Vote> profile) {
+        index = new OptionIndex(race);
+        int size = index.size();
+        hopeful = new BitSet(size);
+        hopeful.set(0, size);
+        elected = new BitSet(size);
+        surpluses = new PriorityQueue<>(Comparator.comparingLong((Integer option) -> -tallies[option]).thenComparingInt(option -> option));
+        tallies = new long[size];
+        moved = new long[size];
+        piles = new int[size][];
+        pileSizes = new int[size];
+        for (int option = 0; option < size; option++) {
+            piles[option] = new int[8];
+        }
+
+        List<int[]> counted = new ArrayList<>(profile.size());
+        List<Integer> copies = new ArrayList<>(profile.size());
+        for (BallotProfile.Entry<Vote> entry : profile) {
+            Vote vote = entry.ballot();
+            hopeful.andNot(index.idsOf(vote.getVetoes()));
+            if (!vote.isShadow()) {
+                counted.add(choicesOf(vote));
+                copies.add(entry.multiplicity());
+            }
+        }
+
+        choices = counted.toArray(new int[0][]);
+        multiplicities = copies.stream().mapToInt(Integer::intValue).toArray();
+        values = new long[choices.length];
+        cursors = new int[choices.length];
+        long votes = 0L;
+        for (int ballot = 0; ballot < choices.length; ballot++) {
+            values[ballot] = FixedPoint.ONE;
+            if (seat(ballot)) {
+                votes += multiplicities[ballot];
+            }
+        }
+        quota = (votes / (seats + 1) + 1) * FixedPoint.ONE;
+    }
+
+    /** @return the ids of the options the given vote ranks, in order of preference */
+    private int[] choicesOf(Vote vote) {
+        if (vote instanceof WeightedVote weightedVote) {
+            RatingVector ratings = weightedVote.toRatingVector(index);
+            return IntStream.range(0, ratings.size())
+                    .filter(position -> ratings.rating(position) > 0.0)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble((Integer position) -> -ratings.rating(position)))
+                    .mapToInt(ratings::id)
+                    .toArray();
+        }
+
+        List<Option> options;
+        if (vote instanceof RankedVote rankedVote) {
+            options = rankedVote.getRankings();
+        } else {
+            Option selection = vote.toSingleVote().getVote();
+            options = selection == null ? Collections.emptyList() : Collections.singletonList(selection);
+        }
+        return options.stream().mapToInt(index::indexOf).filter(id -> id >= 0).toArray();
+    }
+
+    /**
+     * Elect every candidate that reached the quota, then transfer a surplus, or else eliminate the last candidate
+     * @return winners, if they have yet been found, or else <code>null</code>
+     */
+    private Set<Option> evaluateRound() {
+        int open = seats - elected.cardinality();
+        int[] reached = hopeful.stream()
+                .filter(option -> tallies[option] >= quota)
+                .boxed()
+                .sorted(Comparator.comparingLong(option -> -tallies[option]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        if (reached.length >= open) {
+            return electMost(reached, open);
+        }
+        for (int option : reached) {
+            elect(option);
+        }
+        open -= reached.length;
+
+        if (hopeful.cardinality() <= open) {
+            for (int option : hopeful.stream().toArray()) {
+                elect(option);
+            }
+            return index.optionsOf(elected);
+        }
+
+        Integer surplus = surpluses.poll();
+        if (surplus != null) {
+            transferSurplus(surplus);
+            return null;
+        }
+
+        long lowest = Long.MAX_VALUE;
+        for (int option = hopeful.nextSetBit(0); option >= 0; option = hopeful.nextSetBit(option + 1)) {
+            lowest = Math.min(lowest, tallies[option]);
+        }
+        BitSet losers = new BitSet(index.size());
+        for (int option = hopeful.nextSetBit(0); option >= 0; option = hopeful.nextSetBit(option + 1)) {
+            if (tallies[option] == lowest) {
+                losers.set(option);
+            }
+        }
+        if (hopeful.cardinality() - losers.cardinality() < open) {
+            for (int option : hopeful.stream().toArray()) { // the tied candidates share the last seats
+                elect(option);
+            }
+            return index.optionsOf(elected);
+        }
+        for (int loser = losers.nextSetBit(0); loser >= 0; loser = losers.nextSetBit(loser + 1)) {
+            hopeful.clear(loser);
+            listener.eliminated(race, round, index.option(loser));
+        }
+        for (int loser = losers.nextSetBit(0); loser >= 0; loser = losers.nextSetBit(loser + 1)) {
+            transfer(loser, 1L, 1L);
+        }
+        return null;
+    }
+
+    /** Fill the open seats with the candidates that reached the quota with the most votes; ties for the last seat all win */
+    private Set<Option> electMost(int[] reached, int open) {
+        long lastSeat = tallies[reached[open - 1]];
+        for (int option : reached) {
+            if (tallies[option] >= lastSeat) {
+                elect(option);
+            }
+        }
+        return index.optionsOf(elected);
+    }
+
+    private void elect(int option) {
+        hopeful.clear(option);
+        elected.set(option);
+        listener.elected(race, round, index.option(option));
+        if (tallies[option] > quota) {
+            surpluses.add(option);
+        }
+    }
+
+    /** Move each ballot counting toward an elected candidate on, keeping only the fraction of its value that's surplus */
+    private void transferSurplus(int option) {
+        long total = tallies[option];
+        transfer(option, total - quota, total);
+        tallies[option] = quota;
+    }
+
+    /**
+     * Move every ballot in a candidate's pile to its next hopeful choice, keeping a fraction of its value
+     * @param numerator the numerator of the fraction
+     * @param denominator the denominator of the fraction
+     */
+    private void transfer(int from, long numerator, long denominator) {
+        boolean reports = listener != EvaluationListener.NONE;
+        if (reports) {
+            Arrays.fill(moved, 0L);
+        }
+
+        int[] pile = piles[from];
+        int pileSize = pileSizes[from];
+        piles[from] = new int[8];
+        pileSizes[from] = 0;
+        tallies[from] = 0L;
+        for (int position = 0; position < pileSize; position++) {
+            int ballot = pile[position];
+            if (numerator != denominator) {
+                values[ballot] = FixedPoint.scale(values[ballot], numerator, denominator); // rounded down, so no more than the surplus moves
+            }
+            if (seat(ballot) && reports) {
+                moved[choices[ballot][cursors[ballot]]] += multiplicities[ballot] * values[ballot];
+            }
+        }
+
+        if (reports) {
+            for (int to = hopeful.nextSetBit(0); to >= 0; to = hopeful.nextSetBit(to + 1)) {
+                if (moved[to] > 0L) {
+                    listener.transferred(race, round, index.option(from), index.option(to), FixedPoint.toDouble(moved[to]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Count a ballot toward its highest choice that's still hopeful, from the choice it last counted toward
+     * @return <code>false</code> if it has no hopeful choices left, and is exhausted
+     */
+    private boolean seat(int ballot) {
+        int[] ballotChoices = choices[ballot];
+        while (cursors[ballot] < ballotChoices.length) {
+            int option = ballotChoices[cursors[ballot]];
+            if (hopeful.get(option)) {
+                if (pileSizes[option] == piles[option].length) {
+                    piles[option] = Arrays.copyOf(piles[option], 2 * pileSizes[option]);
+                }
+                piles[option][pileSizes[option]++] = ballot;
+                tallies[option] += multiplicities[ballot] * values[ballot];
+                return true;
+            }
+            cursors[ballot]++;
+        }
+        return false;
+    }
+
+    private void reportStandings() {
+        for (int option = hopeful.nextSetBit(0); option >= 0; option = hopeful.nextSetBit(option + 1)) {
+            listener.standing(race, round, index.option(option), FixedPoint.toDouble(tallies[option]));
+        }
+    }
+}
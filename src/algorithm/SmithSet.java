@@ -0,0 +1,227 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.BallotSource;
+import model.Option;
+import model.OptionIndex;
+import model.Race;
+import model.Result;
+import model.vote.RankedVote;
+import model.vote.SimpleRankingVote;
+import model.vote.Vote;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Function;
+
+/**
+ * A pre-pass that narrows a race to its <a href="https://electowiki.org/wiki/Smith_set">Smith set</a>,
+ * then evaluates the narrowed race with another algorithm.
+ * <br>
+ * The Smith set is the smallest set of candidates that each beat every candidate outside it, head-to-head.
+ * In the graph where each candidate points to every candidate it beats or ties,
+ * that's the one strongly connected component with no edges into it, found with Tarjan's algorithm.
+ * Vetoed options are removed first, and a ballot that doesn't rank its options is read as ranking its single choice.
+ * <br>
+ * Algorithms that always elect from the Smith set, like {@link CopelandMethod}, {@link Schulze}, and {@link RankedPairs},
+ * elect the same winners from the narrowed race, with less work; they decide from the pre-pass's own head-to-head counts,
+ * without reading the ballots again.
+ * Others, like {@link WeightedRunoff}, become their Smith-efficient variants.
+ *
+ * @param <V> the type of vote
+ */
+public class SmithSet<V extends Vote> extends EvalAlgorithm<V> {
+
+    private final Function<Race, ? extends EvalAlgorithm<V>> algorithm;
+    private OptionIndex index;
+    private PairwiseMatrix headToHeads;
+    private BitSet candidates; // ids of options that weren't vetoed
+
+    /** @param algorithm creates the algorithm to evaluate the narrowed race with */
+    public SmithSet(Race race, @NotNull Function<Race, ? extends EvalAlgorithm<V>> algorithm) {
+        super(race);
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * @param algorithm creates the algorithm to evaluate each narrowed race with
+     * @return a factory of Smith set pre-passes; factories of the same algorithm are equal,
+     * so {@link Evaluator} recognizes their results
+     */
+    public static <V extends Vote> Function<Race, EvalAlgorithm<V>> first(@NotNull Function<Race, ? extends EvalAlgorithm<V>> algorithm) {
+        return new First<>(algorithm);
+    }
+
+    @Override
+    public Result evaluate(BallotProfile<V> profile) {
+        initializeCandidates();
+        for (BallotProfile.Entry<V> entry : profile) {
+            count(entry.ballot(), entry.multiplicity());
+        }
+
+        BitSet smithSet = find(headToHeads, candidates);
+        EvalAlgorithm<V> evaluated = narrow(smithSet);
+        if (evaluated instanceof PairwiseAlgorithm pairwise) {
+            return pairwise.evaluate(headToHeads, smithSet);
+        }
+        return evaluated.evaluate(profile);
+    }
+
+    /** Counts head-to-head matchups in one pass, then streams the source again to the narrowed algorithm */
+    @Override
+    public Result evaluate(BallotSource<V> source) {
+        if (streamingPasses() == 0) {
+            return super.evaluate(source);
+        }
+
+        initializeCandidates();
+        for (V vote : source) {
+            count(vote, 1);
+        }
+
+        BitSet smithSet = find(headToHeads, candidates);
+        EvalAlgorithm<V> evaluated = narrow(smithSet);
+        if (evaluated instanceof PairwiseAlgorithm pairwise) {
+            return pairwise.evaluate(headToHeads, smithSet);
+        }
+        return evaluated.evaluate(source);
+    }
+
+    @Override
+    public int streamingPasses() {
+        EvalAlgorithm<V> evaluated = algorithm.apply(race);
+        if (evaluated instanceof PairwiseAlgorithm) {
+            return 1;
+        }
+        int passes = evaluated.streamingPasses();
+        return passes == 0 ? 0 : passes + 1;
+    }
+
+    private void initializeCandidates() {
+        index = new OptionIndex(race);
+        headToHeads = new PairwiseMatrix(index);
+        candidates = new BitSet(index.size());
+        candidates.set(0, index.size());
+    }
+
+    private void count(Vote vote, int multiplicity) {
+        if (vote instanceof RankedVote rankedVote) {
+            headToHeads.add(rankedVote, multiplicity);
+        } else if (vote.toSingleVote().getVote() != null) {
+            headToHeads.add(SimpleRankingVote.fromVote(vote), multiplicity);
+        }
+
+        for (Option veto : vote.getVetoes()) {
+            int id = index.indexOf(veto);
+            if (id >= 0) {
+                candidates.clear(id);
+            }
+        }
+    }
+
+    /**
+     * @return the algorithm to evaluate the Smith set with, or the whole race if every option was vetoed;
+     * an algorithm that decides from head-to-head counts is given the whole race, and decides between the Smith set
+     */
+    private EvalAlgorithm<V> narrow(BitSet smithSet) {
+        EvalAlgorithm<V> evaluated = algorithm.apply(race);
+        if (!(evaluated instanceof PairwiseAlgorithm) && !smithSet.isEmpty() && smithSet.cardinality() < index.size()) {
+            evaluated = algorithm.apply(new Race(race.name(), index.optionsOf(smithSet)));
+        }
+        evaluated.setListener(listener);
+        evaluated.setCancellation(cancellation);
+        return evaluated;
+    }
+
+    /**
+     * Find the Smith set with Tarjan's algorithm, on adjacency arrays.
+     * Tarjan's algorithm finds components in reverse topological order,
+     * and every other component is reachable from the Smith set, so it's the last component found.
+     *
+     * @param candidates ids of the candidates to consider
+     * @return ids of the candidates in the Smith set; empty only if there are no candidates
+     */
+    static BitSet find(@NotNull PairwiseMatrix headToHeads, @NotNull BitSet candidates) {
+        int size = headToHeads.size();
+
+        // each candidate's edges, to every candidate it beats or ties, are targets[firstEdge[i]] to targets[firstEdge[i + 1] - 1]
+        int[] firstEdge = new int[size + 1];
+        int[] targets = new int[size * size];
+        int edges = 0;
+        for (int i = 0; i < size; i++) {
+            firstEdge[i] = edges;
+            if (!candidates.get(i)) { continue; }
+            for (int j = candidates.nextSetBit(0); j >= 0; j = candidates.nextSetBit(j + 1)) {
+                if (j != i && headToHeads.margin(i, j) >= 0) {
+                    targets[edges++] = j;
+                }
+            }
+        }
+        firstEdge[size] = edges;
+
+        int[] discovered = new int[size]; // order in which each candidate was discovered; -1 until then
+        int[] lowLink = new int[size];
+        int[] nextEdge = new int[size];
+        int[] path = new int[size]; // candidates whose edges are being explored, in place of recursion
+        int[] stack = new int[size]; // candidates not yet assigned to a component
+        boolean[] stacked = new boolean[size];
+        Arrays.fill(discovered, -1);
+
+        BitSet component = new BitSet(size);
+        int discoveries = 0;
+        for (int root = candidates.nextSetBit(0); root >= 0; root = candidates.nextSetBit(root + 1)) {
+            if (discovered[root] >= 0) { continue; }
+
+            int depth = 0;
+            int stackSize = 0;
+            discovered[root] = lowLink[root] = discoveries++;
+            nextEdge[root] = firstEdge[root];
+            path[depth++] = root;
+            stack[stackSize++] = root;
+            stacked[root] = true;
+
+            while (depth > 0) {
+                int candidate = path[depth - 1];
+                if (nextEdge[candidate] < firstEdge[candidate + 1]) {
+                    int target = targets[nextEdge[candidate]++];
+                    if (discovered[target] < 0) {
+                        discovered[target] = lowLink[target] = discoveries++;
+                        nextEdge[target] = firstEdge[target];
+                        path[depth++] = target;
+                        stack[stackSize++] = target;
+                        stacked[target] = true;
+                    } else if (stacked[target]) {
+                        lowLink[candidate] = Math.min(lowLink[candidate], discovered[target]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0) {
+                    int parent = path[depth - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[candidate]);
+                }
+                if (lowLink[candidate] == discovered[candidate]) {
+                    component.clear();
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        stacked[member] = false;
+                        component.set(member);
+                    } while (member != candidate);
+                }
+            }
+        }
+        return component;
+    }
+
+    // Equal for equal algorithm factories, unlike a lambda
+    private record First<V extends Vote>(Function<Race, ? extends EvalAlgorithm<V>> algorithm)
+            implements Function<Race, EvalAlgorithm<V>> {
+        @Override
+        public EvalAlgorithm<V> apply(Race race) {
+            return new SmithSet<>(race, algorithm);
+        }
+    }
+}
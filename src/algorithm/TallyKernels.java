@@ -0,0 +1,93 @@
+package algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * The additive steps of counting ratings, over a row-major matrix of ratings
+ * with a row per distinct ballot and a column per option id, as a {@link RatingMatrix} keeps them.
+ * <br>
+ * {@link TallyKernels#preferred()} runs them on the incubating Vector API when the JVM was started with
+ * <code>--add-modules jdk.incubator.vector</code>, and as plain loops otherwise.
+ * The two may round sums differently, since they add in a different order.
+ */
+public abstract class TallyKernels {
+
+    private static final TallyKernels SCALAR = new Scalar();
+    private static final TallyKernels PREFERRED = load();
+
+    /** @return the Vector API kernels if the <code>jdk.incubator.vector</code> module is enabled, or else the plain loops */
+    @NotNull
+    public static TallyKernels preferred() { return PREFERRED; }
+
+    @NotNull
+    public static TallyKernels scalar() { return SCALAR; }
+
+    /** @return whether these kernels run on the Vector API */
+    public abstract boolean isVectorized();
+
+    /**
+     * @param mask <code>1.0</code> for each column to sum, and <code>0.0</code> for the others
+     * @param sums filled with the sum of the absolute values of each row's masked ratings
+     */
+    public abstract void absoluteRowSums(double[] matrix, int columns, double[] mask, double[] sums);
+
+    /**
+     * @param rowScales what to multiply each row by, one per row
+     * @param sums filled with the sum of each column's scaled ratings
+     * @param absoluteSums if not <code>null</code>, filled with the sum of the absolute values of each column's scaled ratings
+     */
+    public abstract void columnSums(double[] matrix, int columns, double[] rowScales, double[] sums, @Nullable double[] absoluteSums);
+
+    /** The Vector API kernels are only loaded once the module is known to be there, so the class never fails to link */
+    private static TallyKernels load() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            return (TallyKernels) Class.forName("algorithm.VectorTallyKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    private static final class Scalar extends TallyKernels {
+
+        @Override
+        public boolean isVectorized() { return false; }
+
+        @Override
+        public void absoluteRowSums(double[] matrix, int columns, double[] mask, double[] sums) {
+            for (int row = 0; row < sums.length; row++) {
+                int offset = row * columns;
+                double sum = 0.0;
+                for (int column = 0; column < columns; column++) {
+                    sum += Math.abs(matrix[offset + column]) * mask[column];
+                }
+                sums[row] = sum;
+            }
+        }
+
+        @Override
+        public void columnSums(double[] matrix, int columns, double[] rowScales, double[] sums, double[] absoluteSums) {
+            Arrays.fill(sums, 0, columns, 0.0);
+            if (absoluteSums != null) {
+                Arrays.fill(absoluteSums, 0, columns, 0.0);
+            }
+            for (int row = 0; row < rowScales.length; row++) {
+                double scale = rowScales[row];
+                if (scale == 0.0) { continue; }
+                int offset = row * columns;
+                for (int column = 0; column < columns; column++) {
+                    double scaled = scale * matrix[offset + column];
+                    sums[column] += scaled;
+                    if (absoluteSums != null) {
+                        absoluteSums[column] += Math.abs(scaled);
+                    }
+                }
+            }
+        }
+    }
+}
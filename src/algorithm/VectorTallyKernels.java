@@ -0,0 +1,69 @@
+package algorithm;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * {@link TallyKernels} on the incubating Vector API, a whole vector of columns at a time,
+ * with plain loops for the columns left over past the last whole vector.
+ * Only loaded by {@link TallyKernels#preferred()}, once the <code>jdk.incubator.vector</code> module is known to be enabled.
+ */
+final class VectorTallyKernels extends TallyKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public boolean isVectorized() { return true; }
+
+    @Override
+    public void absoluteRowSums(double[] matrix, int columns, double[] mask, double[] sums) {
+        int bound = SPECIES.loopBound(columns);
+        for (int row = 0; row < sums.length; row++) {
+            int offset = row * columns;
+            DoubleVector sum = DoubleVector.zero(SPECIES);
+            int column = 0;
+            for (; column < bound; column += SPECIES.length()) {
+                DoubleVector ratings = DoubleVector.fromArray(SPECIES, matrix, offset + column);
+                sum = ratings.abs().fma(DoubleVector.fromArray(SPECIES, mask, column), sum);
+            }
+            double total = sum.reduceLanes(VectorOperators.ADD);
+            for (; column < columns; column++) {
+                total += Math.abs(matrix[offset + column]) * mask[column];
+            }
+            sums[row] = total;
+        }
+    }
+
+    @Override
+    public void columnSums(double[] matrix, int columns, double[] rowScales, double[] sums, double[] absoluteSums) {
+        Arrays.fill(sums, 0, columns, 0.0);
+        if (absoluteSums != null) {
+            Arrays.fill(absoluteSums, 0, columns, 0.0);
+        }
+        int bound = SPECIES.loopBound(columns);
+        for (int row = 0; row < rowScales.length; row++) {
+            double scale = rowScales[row];
+            if (scale == 0.0) { continue; }
+            int offset = row * columns;
+            DoubleVector scales = DoubleVector.broadcast(SPECIES, scale);
+            int column = 0;
+            for (; column < bound; column += SPECIES.length()) {
+                DoubleVector scaled = DoubleVector.fromArray(SPECIES, matrix, offset + column).mul(scales);
+                scaled.add(DoubleVector.fromArray(SPECIES, sums, column)).intoArray(sums, column);
+                if (absoluteSums != null) {
+                    scaled.abs().add(DoubleVector.fromArray(SPECIES, absoluteSums, column)).intoArray(absoluteSums, column);
+                }
+            }
+            for (; column < columns; column++) {
+                double scaled = scale * matrix[offset + column];
+                sums[column] += scaled;
+                if (absoluteSums != null) {
+                    absoluteSums[column] += Math.abs(scaled);
+                }
+            }
+        }
+    }
+}
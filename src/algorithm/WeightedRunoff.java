@@ -1,58 +1,100 @@
 package algorithm;
 
+import model.BallotProfile;
 import model.Option;
+import model.OptionIndex;
 import model.Race;
-import model.Result;
 import model.vote.RankedVote;
+import model.vote.RatingVector;
 import model.vote.Vote;
 import model.vote.WeightedVote;
 import org.jetbrains.annotations.NotNull;
-import org.jfree.data.flow.DefaultFlowDataset;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class WeightedRunoff extends EvalAlgorithm<Vote> {
 
     private boolean multiRound = true; // True for "instant runoff" style; false for a single-round count
+    private boolean incremental = true; // True to re-examine only votes counting toward the latest losers
+    private boolean bulkElimination = true; // True to eliminate every candidate that can no longer catch up at once
     private int round;
-    private Map<Option, Double> standings;
-    private Set<Vote> voters;
-    Set<Option> latestLosers;
-    Map<Option, Map<Option,Double>> latestFlows;
-    DefaultFlowDataset<ScoredOption> resultsData;
+    private OptionIndex index;
+    private long[] standings; // fixed-point scores, by option id
+    private long[] movable; // fixed-point absolute weight of the non-shadow votes counting toward each candidate
+    private BitSet remaining; // ids of candidates still in the race
+    private List<Caucuser> voters;
+    private long nonShadowWeight; // fixed-point
+    private long[] shadowWeights; // fixed-point raw ratings of shadow votes, by option id
+    private long roundingSlack; // fixed-point bound on the rounding error of moving every vote
+    private List<List<Caucuser>> buckets; // votes currently counting toward each candidate, by option id
+    private boolean traced = true; // True to record a trace of each round
+    private RoundTrace trace; // null when not traced
+    BitSet latestLosers;
+    private int[] loserIds; // the latest losers, in ascending order
+    private double[] loserRatings; // scratch: a vote's normalized ratings of each latest loser, before re-normalizing
+    private BallotProfile<Vote> profile; // the ballots last evaluated
+    private BitSet eligible; // ids of candidates that weren't vetoed
+    private BitSet contested; // ids of the candidates remaining before the latest elimination
+    private Set<Option> winners;
+    private List<BitSet> path; // ids of the candidates remaining at the start of each round
+    private BitSet excluded; // ids of candidates removed before counting, as if vetoed; null for none
+    private Set<BitSet> rejoin; // sets of remaining candidates from which another count's rounds are known; null for none
+    private Set<Option> rejoinWinners; // the winners of that count
+    private RatingMatrix ratingMatrix; // non-shadow weighted votes, packed for scoring; null if too sparse, or not yet packed
+    private List<Caucuser> scoredSeparately; // votes that aren't in the rating matrix; null until scoring first packs it
+    private TallyKernels kernels = TallyKernels.preferred(); // to sum the rating matrix with
+
+    private static final int MIN_RATED_SHARE = 4; // pack ratings only if ballots rate at least 1 in this many options
+    private static final long MAX_MATRIX_CELLS = 1L << 21; // largest rating matrix to pack
 
     public WeightedRunoff(Race race) {
         super(race);
     }
 
     @Override
-    public Result evaluate(Set<Vote> votes) {
-        initializeStandings(race.options());
-        this.latestLosers = new HashSet<>();
-        this.latestFlows = new HashMap<>();
-        this.resultsData = new DefaultFlowDataset<>();
-
-        Set<Option> winners = null;
-        this.voters = votes;
-
-        voters.stream()
-                .map(Vote::getVetoes)
-                .flatMap(Set::stream)
-                .forEach(standings::remove);
+    public RunoffResult evaluate(BallotProfile<Vote> profile) {
+        this.index = new OptionIndex(race);
+        this.standings = new long[index.size()];
+        this.movable = new long[index.size()];
+        this.remaining = new BitSet(index.size());
+        remaining.set(0, index.size());
+        this.latestLosers = new BitSet(index.size());
+        this.loserIds = new int[0];
+        this.trace = traced ? new RoundTrace(index) : null;
+        this.buckets = null;
+
+        this.profile = profile;
+        this.winners = null;
+        this.ratingMatrix = null;
+        this.scoredSeparately = null;
+        initializeVoters(profile);
+        if (excluded != null) {
+            remaining.andNot(excluded);
+        }
+        this.eligible = (BitSet) remaining.clone();
+        this.contested = eligible;
+        this.path = new ArrayList<>();
 
         this.round = 0;
         if (multiRound) {
             while (winners == null) {
-                System.out.println();
-                System.out.println("EVALUATING ROUND: " + ++round);
+                // which candidates remain decides the rest of the count, however they came to remain
+                if (rejoin != null && rejoin.contains(remaining)) {
+                    winners = rejoinWinners;
+                    break;
+                }
+                path.add((BitSet) remaining.clone());
+                startRound();
                 winners = evaluateRound();
             }
         } else {
+            startRound();
+            caucus();
             winners = determineWinners();
         }
 
-        return new Result(winners, resultsData);
+        listener.winners(race, winners);
+        return new RunoffResult(this, winners, trace);
     }
 
     /**
@@ -67,38 +109,105 @@ public class WeightedRunoff extends EvalAlgorithm<Vote> {
         this.multiRound = multiRound;
     }
 
-    private void initializeStandings(Collection<Option> remainingCandidates) {
-        this.standings = new HashMap<>();
-        remainingCandidates.forEach(option -> standings.put(option, 0.0));
+    /**
+     * Change how votes are re-counted between rounds of a multi-round race.
+     * An incremental count keeps each vote's assignment from the previous round,
+     * and only re-examines votes that counted toward a candidate that was just eliminated.
+     * Total work then scales with the number of transferred votes rather than voters times rounds.
+     * Both counts produce identical standings.
+     *
+     * @param incremental <code>true</code> to redistribute only the latest losers' votes,
+     *                    <code>false</code> to re-count every vote each round
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
     }
 
     /**
-     * @return winners, if they have yet been found, or else <code>null</code>>
+     * Bulk elimination drops, in a single round, every trailing candidate that would be eliminated
+     * in the following rounds regardless of how their votes transfer. The winners are the same either way.
+     *
+     * @param bulkElimination <code>true</code> to eliminate all mathematically defeated candidates at once,
+     *                        <code>false</code> to only eliminate the lowest-scoring candidates each round
      */
-    private Set<Option> evaluateRound() {
-        // update flows from surviving candidates
-        if (!latestLosers.isEmpty()) {
-            latestFlows = new HashMap<>();
-            for (Option candidate : standings.keySet()) {
-                HashMap<Option, Double> map = new HashMap<>();
-                map.put(candidate, standings.get(candidate));
-                latestFlows.put(candidate, map);
+    public void setBulkElimination(boolean bulkElimination) {
+        this.bulkElimination = bulkElimination;
+    }
+
+    /**
+     * Untraced counts skip all accounting of vote transfers between rounds, unless a listener is set,
+     * and their results can't be charted.
+     *
+     * @param traced <code>true</code> to record a {@link RoundTrace} of each round in the result
+     */
+    public void setTraced(boolean traced) {
+        this.traced = traced;
+    }
+
+    /**
+     * Change how the margin of victory search sums the packed ratings of weighted votes.
+     * Either kernels give the same margins, up to rounding.
+     *
+     * @param kernels {@link TallyKernels#preferred()} by default
+     */
+    public void setKernels(@NotNull TallyKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * Find how many ballots would have to change for the last race evaluated to have different winners.
+     * The count itself always finishes, but once this runoff's cancellation token is cancelled,
+     * the margin settles for the bounds found so far.
+     *
+     * @see RunoffMargin
+     */
+    public MarginOfVictory marginOfVictory() {
+        if (profile == null) {
+            throw new IllegalStateException("No race has been evaluated");
+        }
+        return new RunoffMargin(this, cancellation).find();
+    }
+
+    /** Intern each vote's choices, and remove vetoed candidates */
+    private void initializeVoters(BallotProfile<Vote> profile) {
+        this.voters = new ArrayList<>(profile.size());
+        this.nonShadowWeight = 0L;
+        this.shadowWeights = new long[index.size()];
+        this.roundingSlack = 0L;
+        for (BallotProfile.Entry<Vote> entry : profile) {
+            Vote vote = entry.ballot();
+            Caucuser caucuser = new Caucuser(vote, entry.multiplicity(), index);
+            voters.add(caucuser);
+            roundingSlack += 2L * caucuser.multiplicity * (caucuser.choices.length + 1); // half a unit per rounded rating, twice
+
+            if (!vote.isShadow()) {
+                nonShadowWeight += FixedPoint.ONE * caucuser.multiplicity; // assumption: non-shadow votes have a weight of 1.0
+            } else if (caucuser.ratings != null) {
+                for (int position = 0; position < caucuser.choices.length; position++) {
+                    shadowWeights[caucuser.choices[position]] += caucuser.multiplicity * FixedPoint.of(caucuser.ratings.rating(position));
+                }
             }
-            latestLosers.forEach(loser -> latestFlows.put(loser, new HashMap<>()));
+
+            remaining.andNot(index.idsOf(vote.getVetoes()));
         }
+    }
 
+    /**
+     * @return winners, if they have yet been found, or else <code>null</code>>
+     */
+    private Set<Option> evaluateRound() {
         // assign all voters
-        caucus();
-
-        if (!latestLosers.isEmpty()) {
-            recordFlows();
+        if (incremental) {
+            redistribute();
+        } else {
+            caucus();
         }
 
         // if strict majority, return winner
-        Option strictWinner = strictWinner();
-        if (strictWinner != null) {
+        int strictWinner = strictWinner();
+        if (strictWinner >= 0) {
             Set<Option> winningSet = new HashSet<>();
-            winningSet.add(strictWinner);
+            winningSet.add(index.option(strictWinner));
             return winningSet;
         }
 
@@ -106,161 +215,560 @@ public class WeightedRunoff extends EvalAlgorithm<Vote> {
         latestLosers = losers();
 
         // if no losers / all losers, return all winners
-        if (latestLosers == null || latestLosers.size() == standings.keySet().size()) {
-            return standings.keySet();
+        if (latestLosers == null || latestLosers.cardinality() == remaining.cardinality()) {
+            return index.optionsOf(remaining);
         }
 
         // WARNING: if there's a tie for loser, this removes ALL losers
-        for (Option loser : latestLosers) {
-            // drop the candidate
-            standings.remove(loser);
+        // drop the candidates
+        contested = (BitSet) remaining.clone();
+        remaining.andNot(latestLosers);
+        loserIds = latestLosers.stream().toArray();
+        if (trace != null) {
+            trace.recordEliminated(latestLosers);
+        }
+        for (int loser : loserIds) {
+            listener.eliminated(race, round, index.option(loser));
         }
 
         return null; // no winner yet; loop again
     }
 
+    private void startRound() {
+        listener.roundStarted(race, ++round);
+        if (trace != null) {
+            trace.startRound();
+        }
+    }
+
     // assign unassigned voters
     private void caucus() {
         // reset scores
-        initializeStandings(standings.keySet());
+        Arrays.fill(standings, 0L);
+        Arrays.fill(movable, 0L);
 
         voters.forEach(this::tallyVote);
 
-        for (Option option : standings.keySet()) {
-            System.out.println(option.name() + ": " + standings.get(option));
+        reportStandings();
+    }
+
+    // assign voters that counted toward the latest losers
+    private void redistribute() {
+        if (buckets == null) {
+            Arrays.fill(standings, 0L);
+            Arrays.fill(movable, 0L);
+            buckets = new ArrayList<>(index.size());
+            for (int option = 0; option < index.size(); option++) {
+                buckets.add(new ArrayList<>());
+            }
+            voters.forEach(this::seat);
+        } else {
+            for (int loser = latestLosers.nextSetBit(0); loser >= 0; loser = latestLosers.nextSetBit(loser + 1)) {
+                List<Caucuser> bucket = buckets.set(loser, null);
+                if (bucket == null) { continue; }
+                for (Caucuser caucuser : bucket) {
+                    if (caucuser.ratings != null) {
+                        if (caucuser.round != round) { // may have rated several losers
+                            caucuser.round = round;
+                            reweight(caucuser);
+                        }
+                    } else {
+                        seat(caucuser);
+                    }
+                }
+            }
         }
+
+        reportStandings();
     }
 
     /**
-     * Distribute the voting power of the given vote to the remaining candidates.
-     * Each vote is given a total weight of 1.0
-     * @param vote The vote to be recorded
+     * Assign the given vote to the remaining candidates, and record it in their buckets.
+     * A ranked vote moves down its rankings to the first remaining candidate.
+     * A weighted vote is assigned to every remaining candidate it rated.
      */
-    private void tallyVote(Vote vote) {
-        if (vote instanceof WeightedVote weightedVote) {
-            if (!weightedVote.isShadow()) {
-                Map<Option,Double> loserRatings = new HashMap<>();
-                for (Option loser : latestLosers) {
-                    Double oldRating = weightedVote.getNormalizedRating(loser);
-                    if (oldRating != null) {
-                        loserRatings.put(loser, oldRating);
-                    }
+    private void seat(Caucuser caucuser) {
+        if (caucuser.ratings != null) {
+            tallyVote(caucuser);
+            if (caucuser.vote.isShadow()) { return; } // raw ratings never move between candidates
+            for (int option : caucuser.choices) {
+                if (remaining.get(option)) {
+                    buckets.get(option).add(caucuser);
                 }
-                weightedVote.normalizeAcross(standings.keySet());
+            }
+            return;
+        }
+
+        while (caucuser.cursor < caucuser.choices.length) {
+            int option = caucuser.choices[caucuser.cursor];
+            if (remaining.get(option)) {
+                credit(option, FixedPoint.ONE * caucuser.multiplicity);
+                buckets.get(option).add(caucuser);
+                return;
+            }
+            caucuser.cursor++;
+        }
+    }
 
-                // record flows from losers to survivors
-                for (Option loser : loserRatings.keySet()) {
-                    Map<Option, Double> map = latestFlows.get(loser);
-                    if (map == null) { continue; }
-                    for (Option survivor : standings.keySet()) {
-                        Double newRating = weightedVote.getNormalizedRating((survivor));
-                        if (newRating == null) { continue; }
+    /** Re-normalize a weighted vote across the remaining candidates, replacing its previous contribution */
+    private void reweight(Caucuser caucuser) {
+        RatingVector ratings = caucuser.ratings;
+        boolean transfers = tracksTransfers() && captureLoserRatings(caucuser);
+        for (int position = 0; position < caucuser.choices.length; position++) {
+            if (remaining.get(caucuser.choices[position])) {
+                debit(caucuser.choices[position], caucuser.multiplicity * FixedPoint.of(ratings.normalized(position)));
+            }
+        }
+
+        renormalize(caucuser);
+        if (transfers) {
+            recordTransfers(caucuser);
+        }
 
-                        Double flow = newRating * Math.abs(loserRatings.get(loser));
+        for (int position = 0; position < caucuser.choices.length; position++) {
+            if (remaining.get(caucuser.choices[position])) {
+                credit(caucuser.choices[position], caucuser.multiplicity * FixedPoint.of(ratings.normalized(position)));
+            }
+        }
+    }
 
-                        Double existingFlow = map.get(survivor);
-                        existingFlow = existingFlow == null ? 0.0 : existingFlow;
+    /** Normalize a weighted vote across the remaining candidates, by deactivating those eliminated since it was last normalized */
+    private void renormalize(Caucuser caucuser) {
+        if (!caucuser.normalized) {
+            caucuser.ratings.retain(remaining);
+            caucuser.normalized = true;
+            return;
+        }
+        for (int loser : loserIds) {
+            caucuser.ratings.deactivate(loser);
+        }
+    }
 
-                        map.put(survivor, flow + existingFlow);
-                    }
+    /**
+     * Distribute the voting power of the given vote to the remaining candidates.
+     * Each vote is given a total weight of 1.0
+     * @param caucuser The vote to be recorded
+     */
+    private void tallyVote(Caucuser caucuser) {
+        RatingVector ratings = caucuser.ratings;
+        if (ratings != null) {
+            boolean shadow = caucuser.vote.isShadow();
+            if (!shadow) {
+                boolean transfers = tracksTransfers() && captureLoserRatings(caucuser);
+                renormalize(caucuser);
+                if (transfers) {
+                    recordTransfers(caucuser);
                 }
             }
-            for (Option option : standings.keySet()) {
-                Double rating = weightedVote.getNormalizedRating(option);
-                if (weightedVote.isShadow()) {
-                    rating = weightedVote.getRawRating(option); // use raw instead
+            for (int position = 0; position < caucuser.choices.length; position++) {
+                int option = caucuser.choices[position];
+                if (!remaining.get(option)) { continue; }
+                if (shadow) {
+                    standings[option] += caucuser.multiplicity * FixedPoint.of(ratings.rating(position)); // use raw instead
+                } else {
+                    credit(option, caucuser.multiplicity * FixedPoint.of(ratings.normalized(position)));
                 }
-                double unboxed = rating == null ? 0.0 : rating;
-                standings.put(option, standings.get(option) + unboxed);
             }
-        } else if (vote instanceof RankedVote rv) {
-            Option previousVote = null;
-            for (Option option : rv.getRankings()) {
-                if (latestLosers.contains(option) && previousVote == null) {
-                    previousVote = option;
+        } else {
+            for (int option : caucuser.choices) {
+                if (remaining.get(option)) {
+                    credit(option, FixedPoint.ONE * caucuser.multiplicity);
+                    break;
                 }
-                if (standings.containsKey(option)) {
-                    standings.put(option, standings.get(option) + 1.0);
+            }
+        }
+    }
 
-                    break;
+    /** Add a non-shadow vote's contribution to a candidate's score */
+    private void credit(int option, long contribution) {
+        standings[option] += contribution;
+        movable[option] += Math.abs(contribution);
+    }
+
+    /** Withdraw a contribution exactly as it was {@link WeightedRunoff#credit(int, long) credited} */
+    private void debit(int option, long contribution) {
+        standings[option] -= contribution;
+        movable[option] -= Math.abs(contribution);
+    }
+
+    // Transfers are only needed for the trace, or to report to a listener
+    private boolean tracksTransfers() {
+        return trace != null || listener != EvaluationListener.NONE;
+    }
+
+    /**
+     * Keep the given vote's normalized ratings of the latest losers, from before they were eliminated
+     * @return true iff the vote rated any of the latest losers
+     */
+    private boolean captureLoserRatings(Caucuser caucuser) {
+        if (loserRatings == null || loserRatings.length < loserIds.length) {
+            loserRatings = new double[Math.max(loserIds.length, 4)];
+        }
+        boolean rated = false;
+        for (int loser = 0; loser < loserIds.length; loser++) {
+            int position = caucuser.normalized ? caucuser.ratings.positionOf(loserIds[loser]) : -1;
+            boolean active = position >= 0 && caucuser.ratings.isActive(position);
+            loserRatings[loser] = active ? caucuser.ratings.normalized(position) : Double.NaN;
+            rated |= active;
+        }
+        return rated;
+    }
+
+    /** Record flows from losers to survivors, after the given vote has been re-normalized across the survivors */
+    private void recordTransfers(Caucuser caucuser) {
+        for (int loser = 0; loser < loserIds.length; loser++) {
+            if (Double.isNaN(loserRatings[loser])) { continue; }
+            for (int position = 0; position < caucuser.choices.length; position++) {
+                int option = caucuser.choices[position];
+                if (!remaining.get(option)) { continue; }
+                double newRating = caucuser.ratings.normalized(position);
+
+                double flow = caucuser.multiplicity * newRating * Math.abs(loserRatings[loser]);
+                if (trace != null) {
+                    trace.addTransfer(loser, option, flow);
                 }
+                listener.transferred(race, round, index.option(loserIds[loser]), index.option(option), flow);
             }
-        } else {
-            Option selection = vote.toSingleVote().getVote();
-            if (standings.containsKey(selection)) {
-                standings.put(selection, standings.get(selection) + 1.0);
+        }
+    }
+
+    private void reportStandings() {
+        if (trace != null) {
+            trace.recordStandings(standings, remaining);
+        }
+        for (int option = remaining.nextSetBit(0); option >= 0; option = remaining.nextSetBit(option + 1)) {
+            listener.standing(race, round, index.option(option), FixedPoint.toDouble(standings[option]));
+        }
+    }
+
+    /**
+     * @return The id of the candidate that has a strict majority of votes; or else <code>-1</code>
+     */
+    private int strictWinner() {
+        long scoreToWin = nonShadowWeight;
+        for (int option = remaining.nextSetBit(0); option >= 0; option = remaining.nextSetBit(option + 1)) {
+            scoreToWin += shadowWeights[option];
+        }
+
+        for (int candidate = remaining.nextSetBit(0); candidate >= 0; candidate = remaining.nextSetBit(candidate + 1)) {
+            if (standings[candidate] > scoreToWin) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private Set<Option> determineWinners() {
+        long winningScore = Long.MIN_VALUE;
+        for (int option = remaining.nextSetBit(0); option >= 0; option = remaining.nextSetBit(option + 1)) {
+            winningScore = Math.max(winningScore, standings[option]);
+        }
+        Set<Option> winners = new HashSet<>();
+        for (int option = remaining.nextSetBit(0); option >= 0; option = remaining.nextSetBit(option + 1)) {
+            if (standings[option] == winningScore) {
+                winners.add(index.option(option));
             }
         }
+        return winners;
     }
 
-    private void recordFlows() {
-        List<ScoredOption> lastTos = resultsData.getDestinations(round - 2);
-        for (Option from : latestFlows.keySet()) {
-            Map<Option, Double> map = latestFlows.get(from);
-            ScoredOption lastTo = lastTos.stream().filter(to -> from.name().equals(to.option.name())).findAny().orElse(null);
-            for (Option to : map.keySet()) {
-                resultsData.setFlow(round-1,
-                        new ScoredOption(from, lastTo == null ? 0.0 : lastTo.score()),
-                        new ScoredOption(to, standings.get(to)),
-                        map.get(to));
+    private BitSet losers() {
+        long lowestScore = Long.MAX_VALUE;
+        for (int option = remaining.nextSetBit(0); option >= 0; option = remaining.nextSetBit(option + 1)) {
+            lowestScore = Math.min(lowestScore, standings[option]);
+        }
+        BitSet losers = new BitSet(index.size());
+        for (int option = remaining.nextSetBit(0); option >= 0; option = remaining.nextSetBit(option + 1)) {
+            if (standings[option] <= lowestScore) {
+                losers.set(option);
+            }
+        }
+        // check for: all winners, no losers
+        if (losers.cardinality() == remaining.cardinality()) {
+            return null;
+        }
+
+        if (bulkElimination) {
+            BitSet defeated = defeated();
+            if (defeated.cardinality() > losers.cardinality()) {
+                return defeated;
             }
         }
+        return losers;
     }
 
     /**
-     * @return The {@link Option} that has a strict majority of votes; or else <code>null</code>
+     * Find the trailing candidates that would all be eliminated, one round after another,
+     * before any other candidate is eliminated or wins.
+     * <br>
+     * Eliminating some candidates moves at most the weight that counted toward them, in total, between the others.
+     * So if a trailing candidate's score, plus the weight counting toward the other trailing candidates,
+     * stays below every candidate above them, then it can never overtake them.
+     * The same weight also bounds how far any candidate above them could rise toward a strict majority.
+     *
+     * @return the largest such group of trailing candidates, which may be empty
+     */
+    private BitSet defeated() {
+        int[] order = remaining.stream()
+                .boxed()
+                .sorted(Comparator.comparingLong(option -> standings[option]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        long scoreToWin = nonShadowWeight;
+        for (int option : order) {
+            scoreToWin += shadowWeights[option];
+        }
+        long highestScore = standings[order[order.length - 1]];
+
+        long trailingWeight = 0L; // weight that may move while the trailing candidates are eliminated
+        long highestFloor = Long.MIN_VALUE; // highest score of a trailing candidate, excluding weight it may regain
+        long lowestScoreToWin = scoreToWin; // least that a strict majority may require once trailing candidates leave
+        int defeated = 0;
+        for (int trailing = 1; trailing < order.length; trailing++) {
+            int option = order[trailing - 1];
+            trailingWeight += movable[option];
+            highestFloor = Math.max(highestFloor, standings[option] - movable[option]);
+            lowestScoreToWin -= Math.max(shadowWeights[option], 0L);
+
+            boolean cannotCatchUp = highestFloor + trailingWeight + roundingSlack < standings[order[trailing]];
+            boolean cannotWinMeanwhile = highestScore + trailingWeight + roundingSlack <= lowestScoreToWin;
+            if (cannotCatchUp && cannotWinMeanwhile) {
+                defeated = trailing;
+            }
+        }
+
+        BitSet losers = new BitSet(index.size());
+        for (int trailing = 0; trailing < defeated; trailing++) {
+            losers.set(order[trailing]);
+        }
+        return losers;
+    }
+
+    // The state of the last count, for finding its margin of victory
+
+    OptionIndex index() { return index; }
+
+    Set<Option> winners() { return winners; }
+
+    BallotProfile<Vote> profile() { return profile; }
+
+    boolean isInstantRunoff() { return multiRound; }
+
+    /** @return ids of the candidates that weren't vetoed */
+    BitSet eligible() { return (BitSet) eligible.clone(); }
+
+    /** @return ids of the candidates in the last round that had more than one, or of the only remaining candidate */
+    BitSet finalists() {
+        return (BitSet) (remaining.cardinality() > 1 ? remaining : contested).clone();
+    }
+
+    /** @return the score, in votes, that a candidate must exceed to win outright while the given candidates remain */
+    double scoreToWin(BitSet candidates) {
+        long scoreToWin = nonShadowWeight;
+        for (int option = candidates.nextSetBit(0); option >= 0; option = candidates.nextSetBit(option + 1)) {
+            scoreToWin += shadowWeights[option];
+        }
+        return FixedPoint.toDouble(scoreToWin);
+    }
+
+    /** @see WeightedRunoff#score(BitSet, double[], double[]) */
+    void score(BitSet candidates, double[] scores) {
+        score(candidates, scores, null);
+    }
+
+    /** @return the raw ratings, in votes, that shadow votes give the given option */
+    double shadowWeight(int option) { return FixedPoint.toDouble(shadowWeights[option]); }
+
+    /**
+     * Score each candidate, in votes, as if only the given candidates remained
+     *
+     * @param scores filled with the score of each candidate, by option id; <code>0.0</code> for the others
+     * @param movable if not <code>null</code>, filled with the absolute weight of the non-shadow votes counting toward
+     *                each candidate, which could move if it were eliminated
      */
-    private Option strictWinner() {
-        double scoreToWin = voters.stream().mapToDouble(vote -> {
-            if (vote.isShadow()) {
-                if (vote instanceof WeightedVote weightedVote) {
-                    return standings.keySet()
-                            .stream()
-                            .mapToDouble(o -> {
-                                Double d = weightedVote.getRawRating(o);
-                                return d == null ? 0.0 : d;
-                            })
-                            .sum();
+    void score(BitSet candidates, double[] scores, double[] movable) {
+        Arrays.fill(scores, 0.0);
+        if (movable != null) {
+            Arrays.fill(movable, 0.0);
+        }
+        if (scoredSeparately == null) {
+            packRatings();
+        }
+        if (ratingMatrix != null) {
+            ratingMatrix.addNormalizedScores(candidates, scores, movable);
+        }
+        for (Caucuser caucuser : scoredSeparately) {
+            if (caucuser.ratings == null) {
+                for (int option : caucuser.choices) {
+                    if (candidates.get(option)) {
+                        scores[option] += caucuser.multiplicity;
+                        if (movable != null) {
+                            movable[option] += caucuser.multiplicity;
+                        }
+                        break;
+                    }
+                }
+                continue;
+            }
+            double scale = caucuser.multiplicity / weightAcross(caucuser, candidates);
+            if (!Double.isFinite(scale)) { continue; } // rated none of them, or rated them all zero
+            boolean moves = movable != null && !caucuser.vote.isShadow();
+            for (int position = 0; position < caucuser.choices.length; position++) {
+                int option = caucuser.choices[position];
+                if (candidates.get(option)) {
+                    double contribution = scale * caucuser.ratings.rating(position);
+                    scores[option] += contribution;
+                    if (moves) {
+                        movable[option] += Math.abs(contribution);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack the ratings of non-shadow weighted votes into a {@link RatingMatrix}, so that scoring sums them with its kernels,
+     * if they rate enough of the options for a dense matrix to pay
+     */
+    private void packRatings() {
+        List<RatingVector> rows = new ArrayList<>();
+        List<Caucuser> others = new ArrayList<>();
+        long rated = 0L;
+        for (Caucuser caucuser : voters) {
+            if (caucuser.ratings != null && !caucuser.vote.isShadow()) {
+                rows.add(caucuser.ratings);
+                rated += caucuser.ratings.size();
+            } else {
+                others.add(caucuser);
+            }
+        }
+        long cells = (long) rows.size() * index.size();
+        if (rows.isEmpty() || cells > MAX_MATRIX_CELLS || rated * MIN_RATED_SHARE < cells) {
+            scoredSeparately = voters;
+            return;
+        }
+
+        double[] weights = new double[rows.size()];
+        int row = 0;
+        for (Caucuser caucuser : voters) {
+            if (caucuser.ratings != null && !caucuser.vote.isShadow()) {
+                weights[row++] = caucuser.multiplicity;
+            }
+        }
+        ratingMatrix = new RatingMatrix(index.size(), rows, weights);
+        ratingMatrix.setKernels(kernels);
+        scoredSeparately = others;
+    }
+
+    /**
+     * @param ballot the position of a distinct ballot in the profile last evaluated
+     * @return the score, in votes, that a single copy of the ballot gives the given option,
+     * as if only the given candidates remained
+     */
+    double score(int ballot, int option, BitSet candidates) {
+        Caucuser caucuser = voters.get(ballot);
+        if (!candidates.get(option)) { return 0.0; }
+        if (caucuser.ratings == null) {
+            for (int choice : caucuser.choices) {
+                if (candidates.get(choice)) {
+                    return choice == option ? 1.0 : 0.0;
                 }
-            } else { // not shadow
-                return 1.0; // assumption: non-shadow votes have a weight of 1.0
             }
             return 0.0;
-        }).sum();
+        }
+        int position = caucuser.ratings.positionOf(option);
+        double weight = weightAcross(caucuser, candidates);
+        return position < 0 || weight == 0.0 ? 0.0 : caucuser.ratings.rating(position) / weight;
+    }
+
+    /** @return the sum of the absolute ratings that a weighted vote normalizes across; <code>1.0</code> for shadow votes */
+    private static double weightAcross(Caucuser caucuser, BitSet candidates) {
+        if (caucuser.vote.isShadow()) {
+            return 1.0; // raw ratings are counted as they are
+        }
+        double weight = 0.0;
+        for (int position = 0; position < caucuser.choices.length; position++) {
+            if (candidates.get(caucuser.choices[position])) {
+                weight += Math.abs(caucuser.ratings.rating(position));
+            }
+        }
+        return weight;
+    }
 
-        return standings.keySet()
-                .stream()
-                .filter(candidate -> standings.get(candidate) > scoreToWin)
-                .findAny()
-                .orElse(null);
+    /** @return the winners of the given ballots, counted the same way as the last count but untraced */
+    Set<Option> recount(BallotProfile<Vote> ballots) {
+        return untracedCopy().evaluate(ballots).getWinners();
     }
 
-    private Set<Option> determineWinners() {
-        Double winningScore = standings.values()
-                .stream()
-                .max(Double::compareTo)
-                .orElse(-1.0); // no winners
-        // Assume the winning score exists
-        return  standings.keySet()
-                .stream()
-                .filter(option -> winningScore.equals(standings.get(option)))
-                .collect(Collectors.toSet());
-    }
-
-    private Set<Option> losers() {
-        double lowestScore = standings.values()
-                .stream()
-                .min(Double::compareTo)
-                .orElse(Double.MAX_VALUE);
-        Set<Option> losers = standings.keySet()
-                .stream()
-                .filter(candidate -> standings.get(candidate) <= lowestScore)
-                .collect(Collectors.toSet());
-        // check for: all winners, no losers
-        return losers.size() == standings.size() ? null : losers;
+    /**
+     * Recount the last ballots evaluated as if the given candidate had been vetoed.
+     * Once the recount is left with the same candidates as a round of the last count,
+     * the rest of its rounds would be the same, so it stops there with the same winners.
+     *
+     * @return the winners of the recount
+     */
+    Set<Option> winnersWithout(int candidate) {
+        if (!eligible.get(candidate)) {
+            return winners; // already vetoed
+        }
+        WeightedRunoff recount = untracedCopy();
+        recount.excluded = new BitSet(index.size());
+        recount.excluded.set(candidate);
+        recount.rejoin = new HashSet<>(path);
+        recount.rejoinWinners = winners;
+        return recount.evaluate(profile).getWinners();
+    }
+
+    /** @return a runoff of the same race, with the same settings, that isn't traced */
+    private WeightedRunoff untracedCopy() {
+        WeightedRunoff copy = new WeightedRunoff(race);
+        copy.setInstantRunoff(multiRound);
+        copy.setIncremental(incremental);
+        copy.setBulkElimination(bulkElimination);
+        copy.setTraced(false);
+        return copy;
+    }
+
+    /** A distinct ballot, its choices interned as option ids, and its position in the count */
+    private static class Caucuser {
+        private final Vote vote;
+        private final int multiplicity; // number of voters who cast this ballot
+        private final RatingVector ratings; // non-null for weighted votes
+        // ranked choices in order of preference; or every option rated by a weighted vote, in order of id
+        private final int[] choices;
+        private boolean normalized; // whether a weighted vote has been normalized across the remaining candidates
+        private int cursor; // index into choices of the candidate this vote counts toward
+        private int round; // last round in which this vote was re-weighted
+
+        Caucuser(Vote vote, int multiplicity, OptionIndex index) {
+            this.vote = vote;
+            this.multiplicity = multiplicity;
+            if (vote instanceof WeightedVote wv) {
+                this.ratings = wv.toRatingVector(index); // normalized across remaining options without touching the ballot
+                this.choices = new int[ratings.size()];
+                for (int position = 0; position < choices.length; position++) {
+                    choices[position] = ratings.id(position);
+                }
+                return;
+            }
+
+            this.ratings = null;
+            List<Option> options;
+            if (vote instanceof RankedVote rv) {
+                options = rv.getRankings();
+            } else {
+                Option selection = vote.toSingleVote().getVote();
+                options = selection == null ? Collections.emptyList() : Collections.singletonList(selection);
+            }
+            this.choices = options.stream()
+                    .mapToInt(index::indexOf)
+                    .filter(id -> id >= 0)
+                    .toArray();
+        }
     }
 
-    static record ScoredOption(@NotNull Option option, @NotNull Double score) implements Comparable<ScoredOption> {
+    public record ScoredOption(@NotNull Option option, @NotNull Double score) implements Comparable<ScoredOption> {
         @Override
         public int compareTo(@NotNull ScoredOption o) {
             return this.score.compareTo(o.score);
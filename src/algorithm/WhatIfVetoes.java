@@ -0,0 +1,93 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.Option;
+import model.Race;
+import model.vote.Vote;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Who would win a race if each of its options were vetoed, worked out in the background, each option its own task.
+ * <br>
+ * A vetoed option counts the same as an option left out of the race, so each answer is the race evaluated without it.
+ * When a plain {@link WeightedRunoff} counted the whole race, its count is reused instead:
+ * a recount only differs from the count until it's left with the same candidates as one of the count's rounds;
+ * from there, every round would be the same, so it takes the count's winners without counting them again.
+ * Vetoing an option eliminated in the first rounds usually takes a round or two to recount.
+ * A count narrowed by a pre-pass, like {@link SmithSet}, isn't reused, since a veto can change what the race is narrowed to.
+ * <br>
+ * Answers that are no longer wanted should be {@link WhatIfVetoes#cancel() cancelled}, so their recounts don't queue up.
+ */
+public class WhatIfVetoes {
+
+    private final Race race;
+    private final Map<Option, CompletableFuture<Set<Option>>> winners = new HashMap<>();
+
+    /**
+     * Start recounting the evaluated race on the given executor
+     * @param evaluated the result of evaluating the race with the given algorithm
+     * @param algorithm creates the algorithm the race was evaluated with
+     */
+    public WhatIfVetoes(@NotNull Race race, @NotNull RunoffResult evaluated,
+                        @NotNull Function<Race, ? extends EvalAlgorithm<Vote>> algorithm, @NotNull Executor executor) {
+        this.race = race;
+        boolean reusable = evaluated.race().equals(race) && algorithm.apply(race) instanceof WeightedRunoff;
+        for (Option option : race.options()) {
+            winners.put(option, CompletableFuture.supplyAsync(() -> {
+                Set<Option> recounted = reusable ? evaluated.winnersWithout(option) : null;
+                return recounted != null ? recounted : evaluateWithout(option, evaluated.profile(), algorithm);
+            }, executor));
+        }
+    }
+
+    /**
+     * Start evaluating the race without each option on the given executor
+     * @param profile the ballots to count; vetoes already cast still apply
+     * @param algorithm creates the algorithm to evaluate the race with
+     */
+    public WhatIfVetoes(@NotNull Race race, @NotNull BallotProfile<Vote> profile,
+                        @NotNull Function<Race, ? extends EvalAlgorithm<Vote>> algorithm, @NotNull Executor executor) {
+        this.race = race;
+        for (Option option : race.options()) {
+            winners.put(option, CompletableFuture.supplyAsync(() -> evaluateWithout(option, profile, algorithm), executor));
+        }
+    }
+
+    public Race getRace() { return race; }
+
+    /** @return the winners of the race if the given option were vetoed, once they're known */
+    @NotNull
+    public CompletableFuture<Set<Option>> winnersWithout(@NotNull Option option) {
+        CompletableFuture<Set<Option>> future = winners.get(option);
+        if (future == null) {
+            throw new IllegalArgumentException("Not an option in " + race.name() + ": " + option.name());
+        }
+        return future.copy(); // completing the copy leaves the cached future as it is
+    }
+
+    /**
+     * Skip the recounts that haven't started yet; those already running still finish.
+     * Answers not yet known complete exceptionally with a {@link java.util.concurrent.CancellationException}.
+     */
+    public void cancel() {
+        winners.values().forEach(future -> future.cancel(false));
+    }
+
+    private Set<Option> evaluateWithout(Option option, BallotProfile<Vote> profile, Function<Race, ? extends EvalAlgorithm<Vote>> algorithm) {
+        Set<Option> options = new HashSet<>(race.options());
+        options.remove(option);
+        EvalAlgorithm<Vote> recount = algorithm.apply(new Race(race.name(), options));
+        if (recount instanceof WeightedRunoff runoff) {
+            runoff.setTraced(false);
+        }
+        return recount.evaluate(profile).getWinners();
+    }
+}
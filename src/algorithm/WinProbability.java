@@ -0,0 +1,208 @@
+package algorithm;
+
+import model.BallotProfile;
+import model.Option;
+import model.OptionIndex;
+import model.Race;
+import model.Result;
+import model.vote.Vote;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Estimates how likely each option is to win a race, by bootstrapping:
+ * the ballots are resampled with replacement many times, and the race is re-evaluated on each resample.
+ * An option's win probability is the fraction of resamples it wins; tied winners split the win.
+ * <br>
+ * Resamples draw ballot indices into a {@link BallotProfile} rather than copying votes,
+ * and are evaluated in parallel batches. Once every estimate's standard error is within
+ * the tolerance, no more batches are run.
+ * Once the {@link WinProbability#setCancellation(CancellationToken) cancellation token} is cancelled,
+ * no more resamples start, and the estimates are from those evaluated by then.
+ * Resamples draw from {@link SplittableRandom}s split in a fixed pattern,
+ * so the same seed always gives the same estimates, regardless of how the work is scheduled.
+ *
+ * @param <V> the type of vote
+ */
+public class WinProbability<V extends Vote> {
+
+    private static final int RESAMPLES_PER_TASK = 8;
+
+    private final Race race;
+    private final Function<Race, ? extends EvalAlgorithm<V>> algorithm;
+    private final OptionIndex index;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 250;
+    private int maxResamples = 5_000;
+    private double tolerance = 0.01;
+    private SplittableRandom random = new SplittableRandom();
+    private CancellationToken cancellation = CancellationToken.NONE;
+
+    /** @param algorithm creates the algorithm to evaluate each resample with */
+    public WinProbability(@NotNull Race race, @NotNull Function<Race, ? extends EvalAlgorithm<V>> algorithm) {
+        this.race = race;
+        this.algorithm = algorithm;
+        this.index = new OptionIndex(race);
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param batchSize the number of resamples evaluated between convergence checks
+     * @param maxResamples the most resamples to evaluate, even if the estimates haven't converged
+     */
+    public void setResamples(int batchSize, int maxResamples) {
+        if (batchSize < 1 || maxResamples < batchSize) {
+            throw new IllegalArgumentException("Batch size must be positive and at most the maximum number of resamples");
+        }
+        this.batchSize = batchSize;
+        this.maxResamples = maxResamples;
+    }
+
+    /** @param tolerance the largest standard error accepted for any option's win probability */
+    public void setTolerance(double tolerance) {
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("Tolerance must be positive");
+        }
+        this.tolerance = tolerance;
+    }
+
+    public void setSeed(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Stop resampling once the given token is cancelled, without waiting for a first batch,
+     * so the estimate may not have {@link Estimate#converged() converged}, or may be of no resamples at all.
+     */
+    public void setCancellation(@NotNull CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    public Estimate estimate(@NotNull BallotProfile<V> profile) {
+        if (profile.voters() == 0) {
+            return new Estimate(new HashMap<>(), 0, true);
+        }
+
+        // The distinct ballot cast by each voter
+        int[] ballots = new int[profile.voters()];
+        int voter = 0;
+        for (int entry = 0; entry < profile.size(); entry++) {
+            for (int copy = 0; copy < profile.entries().get(entry).multiplicity(); copy++) {
+                ballots[voter++] = entry;
+            }
+        }
+
+        double[] wins = new double[index.size()];
+        int resamples = 0;
+        boolean converged = false;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            while (resamples < maxResamples && !converged && !cancellation.isCancelled()) {
+                int batch = Math.min(batchSize, maxResamples - resamples);
+                double[] batchWins = pool.invoke(new Resample(profile, ballots, batch, random.split()));
+                for (int option = 0; option < wins.length; option++) {
+                    wins[option] += batchWins[option];
+                }
+                resamples += (int) batchWins[wins.length];
+                converged = resamples > 0 && hasConverged(wins, resamples);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<Option, Double> probabilities = new HashMap<>();
+        if (resamples == 0) {
+            return new Estimate(probabilities, 0, false); // cancelled before any resample was evaluated
+        }
+        for (int option = 0; option < wins.length; option++) {
+            probabilities.put(index.option(option), wins[option] / resamples);
+        }
+        return new Estimate(probabilities, resamples, converged);
+    }
+
+    private boolean hasConverged(double[] wins, int resamples) {
+        for (double optionWins : wins) {
+            double p = optionWins / resamples;
+            if (Math.sqrt(p * (1.0 - p) / resamples) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param probabilities the estimated probability of each option winning; empty if no resamples were evaluated
+     * @param resamples the number of resamples evaluated
+     * @param converged whether every estimate was within tolerance before the maximum number of resamples
+     */
+    public record Estimate(@NotNull Map<Option, Double> probabilities, int resamples, boolean converged) {}
+
+    private class Resample extends RecursiveTask<double[]> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final BallotProfile<V> profile;
+        private final int[] ballots;
+        private final int resamples;
+        private final SplittableRandom random;
+
+        Resample(BallotProfile<V> profile, int[] ballots, int resamples, SplittableRandom random) {
+            this.profile = profile;
+            this.ballots = ballots;
+            this.resamples = resamples;
+            this.random = random;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (resamples > RESAMPLES_PER_TASK) {
+                int half = resamples / 2;
+                Resample left = new Resample(profile, ballots, half, random.split());
+                left.fork();
+                double[] wins = new Resample(profile, ballots, resamples - half, random).compute();
+                double[] leftWins = left.join();
+                for (int option = 0; option < wins.length; option++) {
+                    wins[option] += leftWins[option];
+                }
+                return wins;
+            }
+
+            double[] wins = new double[index.size() + 1]; // and, last, the number of resamples evaluated
+            int[] multiplicities = new int[profile.size()];
+            int resample = 0;
+            for (; resample < resamples && !cancellation.isCancelled(); resample++) {
+                Arrays.fill(multiplicities, 0);
+                for (int voter = 0; voter < ballots.length; voter++) {
+                    multiplicities[ballots[random.nextInt(ballots.length)]]++;
+                }
+
+                Result result = algorithm.apply(race).evaluate(profile.withMultiplicities(multiplicities));
+                Set<Option> winners = result.getWinners();
+                for (Option winner : winners) {
+                    int id = index.indexOf(winner);
+                    if (id >= 0) {
+                        wins[id] += 1.0 / winners.size();
+                    }
+                }
+            }
+            wins[index.size()] = resample;
+            return wins;
+        }
+    }
+}
@@ -49,7 +49,12 @@ public enum ButtonWrapper {
                 try {
                     button.eventHandler.accept(new ButtonEvent(event), session);
                 } catch (Exception e) {
-                    event.reply("Button encountered an error: \n" + e.getMessage()).setEphemeral(true).queue();
+                    String message = "Button encountered an error: \n" + e.getMessage();
+                    if (event.isAcknowledged()) { // the handler deferred its reply
+                        event.getHook().sendMessage(message).setEphemeral(true).queue();
+                    } else {
+                        event.reply(message).setEphemeral(true).queue();
+                    }
                 }
                 break;
             }
@@ -1,5 +1,6 @@
 package discord.bot;
 
+import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
 
@@ -45,6 +46,36 @@ public class CommandDataInitializers {
 
     //endregion
 
+    //region Pick
+
+    public static final String CONFIDENCE_OPTION = "confidence";
+    public static final String SEATS_OPTION = "seats";
+
+    //endregion
+
+    //region Races
+
+    public static final String RACE_OPTION = "race";
+    public static final String NEW_NAME = "new";
+    static final SubcommandData NEW_RACE = new SubcommandData(NEW_NAME, "Add another race to this election")
+            .addOption(OptionType.STRING, "name", "A name for the new race", true)
+            .addOption(OptionType.STRING, "candidates", "The candidates in the new race, separated by commas", true);
+    static final SubcommandData VIEW_RACES = new SubcommandData(VIEW_NAME, "List out the races in this election");
+
+    public static final UnaryOperator<SlashCommandData> ADD_RACE = data ->
+            data.addOption(OptionType.STRING, RACE_OPTION, "The race to apply this to; defaults to the first race");
+
+    //endregion
+
+    //region What If
+
+    public static final String VETO_NAME = "veto";
+    static final SubcommandData VETO_WHAT_IF = new SubcommandData(VETO_NAME, "See who would win if a game were vetoed, without vetoing it")
+            .addOption(OptionType.STRING, "game", "The game to imagine vetoed", true)
+            .addOption(OptionType.STRING, RACE_OPTION, "The race to apply this to; defaults to the first race");
+
+    //endregion
+
     //region Toggle
 
     public static final String TOGGLE_NAME = "toggle";
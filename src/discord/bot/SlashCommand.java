@@ -34,7 +34,17 @@ public enum SlashCommand {
             },
             PAST_VOTES_HANDLER),
     PICK("pick", "Tally votes and pick the winning game(s)",
+            data -> ADD_RACE.apply(data.addOption(OptionType.BOOLEAN, CONFIDENCE_OPTION,
+                            "Also estimate each game's chance of winning, by resampling the votes; defaults to False")
+                    .addOption(OptionType.INTEGER, SEATS_OPTION,
+                            "Pick this many games at once, for parallel groups, by single transferable vote; defaults to 1")),
             PICK_HANDLER),
+    STANDINGS("standings", "View the current first-choice votes, ratings, and vetoes without picking a winner",
+            ADD_RACE,
+            STANDINGS_HANDLER),
+    RACE("race", "Add or list the races in this election; each race picks its own winner",
+            data -> data.addSubcommands(NEW_RACE, VIEW_RACES),
+            RACE_HANDLER),
     PLAY("play", "Use this command only once when a game is chosen to record unspent vote weights",
             PLAY_HANDLER),
     RIG("rig", "Cause a game to automatically win the election",
@@ -62,19 +72,22 @@ public enum SlashCommand {
                 data.addOption(OptionType.STRING, "third", "Third-favorite choice of a game to play");
                 data.addOption(OptionType.STRING, "fourth", "Fourth-favorite choice of a game to play");
                 data.addOption(OptionType.STRING, "fifth", "Fifth-favorite choice of a game to play");
-                return data;
+                return ADD_RACE.apply(data);
             },
             VOTE_HANDLER),
     RATE("rate", "Build a weighted vote one candidate at at time; accepts integers",
             data -> {
                 data.addOption(OptionType.STRING, "candidate", "Candidate to rate", true);
                 data.addOption(OptionType.INTEGER, "rating", "Integer rating for this candidate", true);
-                return data;
+                return ADD_RACE.apply(data);
             },
             RATE_HANDLER),
     VETO("veto", "Cause a game to automatically lose the election",
-            data -> data.addOption(OptionType.STRING, "game", "The game to forbid", true),
+            data -> ADD_RACE.apply(data.addOption(OptionType.STRING, "game", "The game to forbid", true)),
             VETO_HANDLER),
+    WHAT_IF("whatif", "Ask who would win if the votes were different",
+            data -> data.addSubcommands(VETO_WHAT_IF),
+            WHAT_IF_HANDLER),
 
     //endregion
 
@@ -134,7 +147,12 @@ public enum SlashCommand {
                 try {
                     command.eventHandler.accept(new SlashEvent(event), session);
                 } catch (Exception e) {
-                    event.reply("Command encountered an error: \n" + e.getMessage()).setEphemeral(true).queue();
+                    String message = "Command encountered an error: \n" + e.getMessage();
+                    if (event.isAcknowledged()) { // the handler deferred its reply
+                        event.getHook().sendMessage(message).setEphemeral(true).queue();
+                    } else {
+                        event.reply(message).setEphemeral(true).queue();
+                    }
                 }
                 break;
             }
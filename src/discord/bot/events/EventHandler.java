@@ -1,19 +1,31 @@
 package discord.bot.events;
 
+import algorithm.CancellationToken;
+import algorithm.MarginOfVictory;
+import algorithm.WinProbability;
 import discord.bot.ButtonWrapper;
 import discord.bot.ModalWrapper;
 import discord.bot.SlashCommand;
 import elections.games.Game;
 import main.Session;
+import model.LiveStandings;
 import model.Option;
 import model.vote.Vote;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.utils.FileUpload;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static discord.bot.CommandDataInitializers.*;
@@ -28,6 +40,9 @@ import static discord.bot.CommandDataInitializers.*;
 public interface EventHandler {
     void accept(@NotNull EventWrapper event, @NotNull Session session) throws Exception;
 
+    long WHAT_IF_TIMEOUT_MILLIS = 2_000; // to wait for an answer still being worked out, within an interaction's time limit
+    long PICK_DEADLINE_MILLIS = 2_000; // to settle for provisional figures by; the reply is deferred, so this only keeps it prompt
+
     //region SlashCommands
 
     EventHandler NEW_POLL_HANDLER = (event, session) -> {
@@ -107,7 +122,34 @@ public interface EventHandler {
     };
 
     EventHandler PICK_HANDLER = (event, session) -> {
-        Set<Option> winners = session.pickWinner();
+        event.deferReply().queue(); // evaluating may take longer than an interaction's time limit
+        CancellationToken deadline = CancellationToken.withTimeout(Duration.ofMillis(PICK_DEADLINE_MILLIS));
+        String raceName = raceName(event);
+        if (raceName == null && session.raceNames().size() > 1) {
+            StringJoiner joiner = new StringJoiner("\n");
+            joiner.add("The winners are:");
+            session.pickWinners().forEach((race, raceWinners) -> joiner.add(race + ": " + raceWinners
+                    .stream()
+                    .map(option -> "**" + option.name() + "**")
+                    .sorted()
+                    .collect(Collectors.joining(", and "))));
+            event.getHook().sendMessage(joiner.toString()).queue();
+            File resultsFile = Paths.get("./data/flowplot.png").toFile(); // FIXME hard coded
+            event.getChannel().sendFiles(FileUpload.fromData(resultsFile)).queue();
+            return;
+        }
+        int seats = seats(event);
+        if (seats > 1) {
+            String winnersString = session.pickWinners(raceName, seats)
+                    .stream()
+                    .map(option -> "**" + option.name() + "**")
+                    .sorted()
+                    .collect(Collectors.joining(", and "));
+            event.getHook().sendMessage("The " + seats + " winners are: " + winnersString).queue();
+            return;
+        }
+
+        Set<Option> winners = session.pickWinner(raceName);
         Set<Game> winningGames = winners
                 .stream()
                 .map(Option::name)
@@ -134,9 +176,72 @@ public interface EventHandler {
                 .map(game -> "\nhttps://cdn.akamai.steamstatic.com/steam/apps/" + game.steamId + "/capsule_616x353.jpg")
                 .findFirst()
                 .orElse("");
-        event.reply("The winner is: " + winnersString + warning + capsuleArtUrl).queue();
+        MarginOfVictory margin = session.marginOfVictory(raceName, deadline);
+        boolean confidenceRequested = isConfidenceRequested(event);
+        String confidence = confidenceRequested ? describe(session.winProbabilities(raceName, deadline)) : "";
+        boolean provisional = deadline.isCancelled(); // some figures may have been cut short
+        String refining = provisional ? "\n*Refining these figures...*" : "";
+        event.getHook().sendMessage("The winner is: " + winnersString + describe(margin) + warning + confidence + refining + capsuleArtUrl).queue();
         File resultsFile = Paths.get("./data/flowplot.png").toFile(); // FIXME hard coded
         event.getChannel().sendFiles(FileUpload.fromData(resultsFile)).queue();
+
+        if (provisional) {
+            CompletableFuture<String> refinedConfidence = confidenceRequested
+                    ? session.winProbabilitiesLater(raceName).thenApply(EventHandler::describe)
+                    : CompletableFuture.completedFuture("");
+            session.marginOfVictoryLater(raceName)
+                    .thenCombine(refinedConfidence, (refinedMargin, refined) -> "Refined figures:" + describe(refinedMargin) + refined)
+                    .whenComplete((message, e) -> {
+                        if (e == null) {
+                            event.getChannel().sendMessage(message).queue();
+                            return;
+                        }
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        System.out.println("error refining the figures of a pick: " + cause);
+                        cause.printStackTrace();
+                        event.getHook().sendMessage("Couldn't refine these figures: \n" + cause.getMessage()).setEphemeral(true).queue();
+                    });
+        }
+    };
+
+    EventHandler STANDINGS_HANDLER = (event, session) -> {
+        List<LiveStandings.Standing> standings = session.liveStandings(raceName(event));
+        StringJoiner joiner = new StringJoiner("\n");
+        joiner.add("Current standings:");
+        int i = 1;
+        for (LiveStandings.Standing standing : standings) {
+            String line = i++ + ". **" + standing.option().name() + "**"
+                    + " - first choice: " + standing.firstChoices();
+            if (standing.ratings() > 0) {
+                line += String.format(", mean rating: %.2f", standing.meanRating());
+            }
+            if (standing.vetoes() > 0) {
+                line += ", vetoes: " + standing.vetoes();
+            }
+            joiner.add(line);
+        }
+        event.reply(joiner.toString()).setEphemeral(true).queue();
+    };
+
+    EventHandler RACE_HANDLER = (event, session) -> {
+        String name = event.getSubcommandName();
+        if (name == null) name = "";
+
+        switch (name) {
+            case NEW_NAME -> {
+                String raceName = event.getOption("name").getAsString().trim();
+                Set<Option> options = Arrays.stream(event.getOption("candidates").getAsString().split(","))
+                        .map(String::trim)
+                        .filter(candidate -> !candidate.isEmpty())
+                        .map(Option::new)
+                        .collect(Collectors.toSet());
+                session.addRace(raceName, options);
+                event.reply("New race added: " + raceName + "\n" +
+                        "Add `race: " + raceName + "` to /vote, /rate, or /veto to vote in it.").queue();
+            }
+            case VIEW_NAME -> event.reply("Races:\n" + String.join("\n", session.raceNames())).setEphemeral(true).queue();
+            default -> event.reply("Unknown subcommand executed").queue();
+        }
     };
 
     EventHandler PLAY_HANDLER = (event, session) -> event.replyModal(ModalWrapper.PLAY.modal()).queue();
@@ -186,15 +291,17 @@ public interface EventHandler {
 
     EventHandler VOTE_HANDLER = (event, session) -> {
         String username = event.getUser().getEffectiveName();
+        String raceName = raceName(event);
         List<Option> gamesList = event.getOptions()
                 .stream()
+                .filter(option -> !option.getName().equals(RACE_OPTION))
                 .map(OptionMapping::getAsString)
-                .map(session::interpret)
+                .map(game -> session.interpret(game, raceName))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
                 .collect(Collectors.toList());
 
-        session.addVote(username, gamesList);
+        session.addVote(username, gamesList, raceName);
 
         String namesList = "";
         int i=1;
@@ -206,33 +313,62 @@ public interface EventHandler {
 
     EventHandler RATE_HANDLER = (event, session) -> {
         String username = event.getUser().getEffectiveName();
+        String raceName = raceName(event);
         String gameString = event.getOption("candidate").getAsString();
-        Option option = session.interpret(gameString).orElse(null);
+        Option option = session.interpret(gameString, raceName).orElse(null);
         if (option == null) {
             event.reply("Game not recognized: " + gameString).setEphemeral(true).queue();
             return;
         }
         Integer rating = event.getOption("rating").getAsInt();
 
-        session.rate(username, option, rating);
+        session.rate(username, option, rating, raceName);
 
         event.reply(username + " rated option: " + option.name() + " -> " + rating)/*.setEphemeral(true)*/.queue();
     };
 
     EventHandler VETO_HANDLER = (event, session) -> {
+        String raceName = raceName(event);
         String gameString = event.getOption("game").getAsString();
-        Option option = session.interpret(gameString).orElse(null);
+        Option option = session.interpret(gameString, raceName).orElse(null);
         if (option == null) {
             event.reply("Game not recognized").setEphemeral(true).queue();
             return;
         }
 
         String username = event.getUser().getEffectiveName();
-        boolean isVetoed = session.veto(username, option);
+        boolean isVetoed = session.veto(username, option, raceName);
         String vetoed = isVetoed ? " vetoed" : " UN-vetoed";
         event.reply(username + vetoed + " the game: " + option.name()).queue();
     };
 
+    EventHandler WHAT_IF_HANDLER = (event, session) -> {
+        String raceName = raceName(event);
+        Option option = session.interpret(event.getOption("game").getAsString(), raceName).orElse(null);
+        if (option == null) {
+            event.reply("Game not recognized").setEphemeral(true).queue();
+            return;
+        }
+
+        Set<Option> winners;
+        try {
+            winners = session.whatIfVetoed(option, raceName).get(WHAT_IF_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            event.reply("Still working that out; try again in a moment").setEphemeral(true).queue();
+            return;
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof CancellationException)) throw e;
+            event.reply("The votes just changed; try again in a moment").setEphemeral(true).queue(); // replaced by newer answers
+            return;
+        }
+        String winnersString = winners
+                .stream()
+                .map(winner -> "**" + winner.name() + "**")
+                .sorted()
+                .collect(Collectors.joining(", and "));
+        event.reply("If " + option.name() + " were vetoed, the winner would be: " + winnersString).setEphemeral(true).queue();
+    };
+
     EventHandler CURRENT_VOTE_HANDLER = (event, session) -> {
         String username = event.getUser().getEffectiveName();
 
@@ -315,6 +451,63 @@ public interface EventHandler {
         event.reply("Version: " + version).setEphemeral(true).queue();
     };
 
+    /** @return a line telling how many ballots would have to change to change the winner, or nothing if none could */
+    private static String describe(@NotNull MarginOfVictory margin) {
+        if (margin.lowerBound() == MarginOfVictory.UNKNOWN) {
+            return "";
+        } else if (margin.isExact()) {
+            return "\nIt would take " + margin.lowerBound() + " changed " + (margin.lowerBound() == 1 ? "ballot" : "ballots")
+                    + " to change the winner";
+        } else if (margin.upperBound() == MarginOfVictory.UNKNOWN) {
+            return "\nIt would take at least " + margin.lowerBound() + " changed " + (margin.lowerBound() == 1 ? "ballot" : "ballots")
+                    + " to change the winner";
+        }
+        return "\nIt would take between " + margin.lowerBound() + " and " + margin.upperBound() + " changed ballots to change the winner";
+    }
+
+    private static String describe(@NotNull WinProbability.Estimate estimate) {
+        if (estimate.resamples() == 0) {
+            return "";
+        }
+        return estimate.probabilities()
+                .entrySet()
+                .stream()
+                .filter(entry -> entry.getValue() > 0.0)
+                .sorted(Map.Entry.<Option, Double>comparingByValue().reversed())
+                .map(entry -> String.format("%s: %.0f%%", entry.getKey().name(), 100.0 * entry.getValue()))
+                .collect(Collectors.joining("\n", "\nChance of winning, from " + estimate.resamples() + " resamples:\n", ""));
+    }
+
+    private static boolean isConfidenceRequested(@NotNull EventWrapper event) {
+        try {
+            OptionMapping confidence = event.getOption(CONFIDENCE_OPTION);
+            return confidence != null && confidence.getAsBoolean();
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /** @return the number of winners the event asks to pick at once, or 1 if it doesn't say */
+    private static int seats(@NotNull EventWrapper event) {
+        try {
+            OptionMapping seats = event.getOption(SEATS_OPTION);
+            return seats == null ? 1 : seats.getAsInt();
+        } catch (UnsupportedOperationException e) {
+            return 1;
+        }
+    }
+
+    /** @return the race named by the event, or null to use the first race */
+    @Nullable
+    private static String raceName(@NotNull EventWrapper event) {
+        try {
+            OptionMapping race = event.getOption(RACE_OPTION);
+            return race == null ? null : race.getAsString();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
     //endregion
 
     //region Buttons
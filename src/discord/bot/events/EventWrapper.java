@@ -2,6 +2,7 @@ package discord.bot.events;
 
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.modals.Modal;
 import net.dv8tion.jda.api.interactions.modals.ModalMapping;
@@ -17,6 +18,11 @@ public interface EventWrapper {
 
     default ModalCallbackAction replyModal(Modal modal) { throw new UnsupportedOperationException(); }
 
+    /** Acknowledge the event now, and reply later through {@link EventWrapper#getHook()} */
+    default ReplyCallbackAction deferReply() { throw new UnsupportedOperationException(); }
+
+    default InteractionHook getHook() { throw new UnsupportedOperationException(); }
+
     default User getUser() { throw new UnsupportedOperationException(); }
 
     default MessageChannelUnion getChannel() { throw new UnsupportedOperationException(); }
@@ -3,6 +3,7 @@ package discord.bot.events;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.modals.ModalMapping;
 import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
 import org.jetbrains.annotations.NotNull;
@@ -20,6 +21,12 @@ public class ModalEvent implements EventWrapper {
     @Override
     public ReplyCallbackAction reply(@NotNull String content) { return event.reply(content); }
 
+    @Override
+    public ReplyCallbackAction deferReply() { return event.deferReply(); }
+
+    @Override
+    public InteractionHook getHook() { return event.getHook(); }
+
     @Override
     public User getUser() { return event.getUser(); }
 
@@ -3,6 +3,7 @@ package discord.bot.events;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.modals.Modal;
 import net.dv8tion.jda.api.requests.restaction.interactions.ModalCallbackAction;
@@ -22,6 +23,12 @@ public class SlashEvent implements EventWrapper {
     @Override
     public ReplyCallbackAction reply(@NotNull String content) { return event.reply(content); }
 
+    @Override
+    public ReplyCallbackAction deferReply() { return event.deferReply(); }
+
+    @Override
+    public InteractionHook getHook() { return event.getHook(); }
+
     @Override
     public ModalCallbackAction replyModal(Modal modal) { return event.replyModal(modal); }
 
@@ -22,6 +22,11 @@ public class DataUtils {
     private static final ObjectMapper mapper = new ObjectMapper();
     public static final List<Class<? extends Vote>> VOTE_TYPES = Arrays.asList(WeightedVote.class, SimpleRankingVote.class, SingleVote.class);
 
+    static {
+        mapper.configure(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT, true);
+        mapper.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
+    }
+
     public static void writeFile(@NotNull Path filepath, @Nullable String contents) throws IOException {
         Files.createDirectories(filepath.getParent());
         Files.deleteIfExists(filepath);
@@ -121,9 +126,6 @@ public class DataUtils {
     public static <T> List<T> deserializeStrings(@Nullable List<String> input, @NotNull Function<String, T> deserializer) {
         if (input == null || input.isEmpty()) return new ArrayList<>();
 
-        mapper.configure(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT, true);
-        mapper.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
-
         return input.stream()
                 .map(deserializer)
                 .filter(Objects::nonNull)
@@ -1,6 +1,13 @@
 package main;
 
+import algorithm.CancellationToken;
 import algorithm.Evaluator;
+import algorithm.MarginOfVictory;
+import algorithm.RunoffResult;
+import algorithm.SingleTransferableVote;
+import algorithm.WhatIfVetoes;
+import algorithm.WeightedRunoff;
+import algorithm.WinProbability;
 import model.*;
 import model.vote.SimpleRankingVote;
 import model.vote.Vote;
@@ -16,11 +23,48 @@ import org.jfree.data.flow.DefaultFlowDataset;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-public class Session { // TODO threading considerations
+/**
+ * The state of the current election, guarded by the session itself. Evaluations read snapshots of it,
+ * so that votes can be cast while they run.
+ * <br>
+ * Each change to the votes or candidates schedules an evaluation in the background, once nothing has changed for a moment,
+ * so {@link Session#pickWinner()} usually finds the results already evaluated, or being evaluated.
+ * Results are only ever used for the election version they were evaluated at; those of past versions are thrown away.
+ */
+public class Session {
     private Election<Vote> election;
-    private Race race; // FIXME
+    private String primaryRaceName; // the race used when no race is named
+    private final Set<String> shadowedVoters = new HashSet<>(); // voters whose past vote weights were added
+    private final Map<String, WhatIfVetoes> whatIfVetoes = new HashMap<>(); // by race name, as of the last evaluation
+    private Set<WeightedVote> unspentVotes; // as last read from the unspent file, or null to read it again
+    private Evaluation latest; // the last evaluation started
+    private Evaluation picked; // the last evaluation whose winners were picked
+    private ScheduledFuture<?> pendingEvaluation; // a background evaluation waiting for changes to settle
+
+    private static final long EVALUATION_DELAY_MILLIS = 500; // of no changes, before evaluating in the background
+    private static final ScheduledExecutorService backgroundEvaluator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "background evaluation");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private static final ExecutorService backgroundRaceEvaluator = Executors.newFixedThreadPool( // the races of a background evaluation
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "background race evaluation");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
 
     private static final String DATA_DIR_PATH = "./data/";
     private static final Path VOTES_FILE_PATH = Path.of(DATA_DIR_PATH, "votes.txt");
@@ -31,7 +75,7 @@ public class Session { // TODO threading considerations
     //region Election State
 
     /** @param options A set of candidates to vote for. If null, previously stored candidates will be loaded. */
-    public void startElection(@Nullable String prompt, @Nullable Set<Option> options) {
+    public synchronized void startElection(@Nullable String prompt, @Nullable Set<Option> options) {
         if (prompt == null || prompt.equals("")) prompt = "Election";
         if (options == null) {
             options = new HashSet<>();
@@ -42,22 +86,63 @@ public class Session { // TODO threading considerations
             }
         }
 
-        race = new Race(prompt, options);
+        Race race = new Race(prompt, options);
         Ballot ballot = new Ballot(prompt, race);
         election = new Election<>(ballot);
+        primaryRaceName = race.name();
+        shadowedVoters.clear();
+        whatIfVetoes.values().forEach(WhatIfVetoes::cancel);
+        whatIfVetoes.clear();
+        latest = null;
+        picked = null;
+        if (pendingEvaluation != null) {
+            pendingEvaluation.cancel(false);
+        }
     }
 
-    /** @return the set of candidates in this election */
+    /**
+     * Add another race to this election's ballot, to be decided alongside the first.
+     * @param name a name for the race, unique on this ballot
+     * @param options the candidates in the new race
+     */
+    public synchronized void addRace(@NotNull String name, @NotNull Set<Option> options) {
+        requireElection();
+        if (findRace(name).isPresent()) {
+            throw new IllegalArgumentException("Race already exists: " + name);
+        }
+        election.addRace(new Race(name, options));
+        scheduleEvaluation();
+    }
+
+    /** @return the names of every race in this election, beginning with the first race */
     @NotNull
-    public Set<Option> getOptions() {
+    public synchronized List<String> raceNames() {
         requireElection();
-        return race.options();
+        return election.getBallot().races()
+                .stream()
+                .map(Race::name)
+                .sorted(Comparator.comparing((String name) -> !name.equals(primaryRaceName)).thenComparing(name -> name))
+                .collect(Collectors.toList());
     }
 
+    /** @return the set of candidates in this election */
     @NotNull
-    public Optional<Option> interpret(@Nullable String input) {
+    public Set<Option> getOptions() { return getOptions(null); }
+
+    /** @return the set of candidates in the named race, or the first race if none is named */
+    @NotNull
+    public Set<Option> getOptions(@Nullable String raceName) {
+        return race(raceName).options();
+    }
+
+    @NotNull
+    public Optional<Option> interpret(@Nullable String input) { return interpret(input, null); }
+
+    /** @return the candidate in the named race best matching the given input */
+    @NotNull
+    public Optional<Option> interpret(@Nullable String input, @Nullable String raceName) {
         if (input == null) return Optional.empty();
-        return getOptions()
+        return getOptions(raceName)
                 .stream().min((o1, o2) -> {
                     String one = o1.name().toLowerCase();
                     String two = o2.name().toLowerCase();
@@ -70,89 +155,403 @@ public class Session { // TODO threading considerations
     }
 
     /** Add a candidate to this election */
-    public void suggest(@NotNull Option suggestion) {
-        requireElection();
+    public void suggest(@NotNull Option suggestion) { suggest(suggestion, null); }
+
+    /** Add a candidate to the named race, or the first race if none is named */
+    public synchronized void suggest(@NotNull Option suggestion, @Nullable String raceName) {
+        Race race = race(raceName);
 
         Set<Option> options = new HashSet<>(race.options());
         options.add(suggestion);
-        Race oldRace = race;
-        race = new Race(race.name(), options);
 
-        election.updateRace(oldRace, race);
+        election.updateRace(race, new Race(race.name(), options));
+        scheduleEvaluation();
     }
 
-    public int numVoters() {
-        requireElection();
-        return election.getVotes(race, false).size();
+    /** @return the live standings of each candidate in the named race, read without evaluating the election */
+    @NotNull
+    public synchronized List<LiveStandings.Standing> liveStandings(@Nullable String raceName) {
+        return election.getLiveStandings(race(raceName));
     }
 
+    /**
+     * Estimate how likely each candidate in the named race is to win, or the first race if none is named,
+     * by re-evaluating the race on resamples of the ballots its winners were last picked from
+     */
     @NotNull
-    public Set<Option> pickWinner() throws IOException {
-        requireElection();
+    public WinProbability.Estimate winProbabilities(@Nullable String raceName) throws IOException {
+        return winProbabilities(raceName, CancellationToken.NONE);
+    }
+
+    /** @see Session#winProbabilities(String); settles for the resamples evaluated by the time the token is cancelled */
+    @NotNull
+    public WinProbability.Estimate winProbabilities(@Nullable String raceName, @NotNull CancellationToken cancellation) throws IOException {
+        Map.Entry<Race, RunoffResult> picked = pickedResult(raceName);
+        return winProbabilities(picked.getKey(), picked.getValue().profile(), cancellation);
+    }
+
+    /** @see Session#winProbabilities(String); worked out in the background */
+    @NotNull
+    public CompletableFuture<WinProbability.Estimate> winProbabilitiesLater(@Nullable String raceName) throws IOException {
+        Map.Entry<Race, RunoffResult> picked = pickedResult(raceName);
+        return CompletableFuture.supplyAsync(
+                () -> winProbabilities(picked.getKey(), picked.getValue().profile(), CancellationToken.NONE), Evaluator.getExecutor());
+    }
+
+    /**
+     * Find how many ballots would have to change for the named race to have different winners,
+     * or the first race if none is named.
+     * The margin is of the winners last picked, found from the state of their count, so the ballots aren't counted again.
+     */
+    @NotNull
+    public MarginOfVictory marginOfVictory(@Nullable String raceName) throws IOException {
+        return marginOfVictory(raceName, CancellationToken.NONE);
+    }
+
+    /** @see Session#marginOfVictory(String); settles for looser bounds once the token is cancelled */
+    @NotNull
+    public MarginOfVictory marginOfVictory(@Nullable String raceName, @NotNull CancellationToken cancellation) throws IOException {
+        return pickedResult(raceName).getValue().marginOfVictory(cancellation);
+    }
+
+    /** @see Session#marginOfVictory(String); worked out in the background */
+    @NotNull
+    public CompletableFuture<MarginOfVictory> marginOfVictoryLater(@Nullable String raceName) throws IOException {
+        RunoffResult result = pickedResult(raceName).getValue();
+        return CompletableFuture.supplyAsync(() -> result.marginOfVictory(CancellationToken.NONE), Evaluator.getExecutor());
+    }
+
+    private static WinProbability.Estimate winProbabilities(Race race, BallotProfile<Vote> profile, CancellationToken cancellation) {
+        WinProbability<Vote> winProbability = new WinProbability<>(race, r -> {
+            WeightedRunoff runoff = new WeightedRunoff(r);
+            runoff.setTraced(false); // resamples are never charted
+            return runoff;
+        });
+        winProbability.setCancellation(cancellation);
+        return winProbability.estimate(profile);
+    }
+
+    /**
+     * Who would win the named race, or the first race if none is named, if the given option were vetoed.
+     * Answers are worked out in the background after each evaluation, so they reflect the votes as of the last one.
+     */
+    @NotNull
+    public CompletableFuture<Set<Option>> whatIfVetoed(@NotNull Option option, @Nullable String raceName) {
+        WhatIfVetoes whatIf;
+        synchronized (this) {
+            Race race = race(raceName);
+            whatIf = whatIfVetoes.get(race.name());
+            if (whatIf == null || !whatIf.getRace().equals(race)) {
+                whatIf = whatIfVetoes(race);
+                replaceWhatIfVetoes(race.name(), whatIf);
+            }
+        }
+        return whatIf.winnersWithout(option); // waited on without holding the session
+    }
+
+    public synchronized int numVoters() {
+        return election.getVotes(race(null), false).size();
+    }
+
+    @NotNull
+    public Set<Option> pickWinner() throws IOException { return pickWinner(null); }
+
+    /** Evaluate every race, and chart the results of the named race, or the first race if none is named */
+    @NotNull
+    public Set<Option> pickWinner(@Nullable String raceName) throws IOException {
+        Map<Race, Result> results = evaluate();
+
+        Result result = resultOf(results, raceName);
+        outputResultsChart(result);
+
+        return result.getWinners();
+    }
+
+    /**
+     * Evaluate every race, and chart the results of the first race
+     * @return the winners of each race, by race name, beginning with the first race
+     */
+    @NotNull
+    public Map<String, Set<Option>> pickWinners() throws IOException {
+        Map<Race, Result> results = evaluate();
+
+        outputResultsChart(resultOf(results, null));
+
+        Map<String, Set<Option>> winners = new LinkedHashMap<>();
+        results.keySet()
+                .stream()
+                .map(Race::name)
+                .sorted(Comparator.comparing((String name) -> !name.equals(primaryRaceName)).thenComparing(name -> name))
+                .forEach(name -> winners.put(name, resultOf(results, name).getWinners()));
+        return winners;
+    }
+
+    /**
+     * Pick several winners of the named race at once, or the first race if none is named,
+     * by {@link SingleTransferableVote single transferable vote}. Winners picked this way aren't charted.
+     */
+    @NotNull
+    public Set<Option> pickWinners(@Nullable String raceName, int seats) throws IOException {
+        Race race;
+        BallotProfile<Vote> profile;
+        synchronized (this) {
+            requireElection();
+            addUnspentVotes();
+            race = race(raceName);
+            profile = profile(race);
+        }
+        return new SingleTransferableVote(race, seats).evaluate(profile).getWinners();
+    }
+
+    /**
+     * Evaluate every race at once, or wait for the evaluation of the election as it is now, if one has already started,
+     * and pick winners from it
+     * @return the result of each race
+     */
+    private Map<Race, Result> evaluate() throws IOException {
+        Evaluation evaluation = evaluation();
+        Map<Race, Result> results;
+        try {
+            results = evaluation.results().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+        synchronized (this) {
+            picked = evaluation;
+        }
+        return results;
+    }
+
+    /**
+     * @return the named race, or the first race if none is named, and its result, in the evaluation winners were last picked from,
+     * or else in an evaluation of the election as it is now
+     */
+    @NotNull
+    private Map.Entry<Race, RunoffResult> pickedResult(@Nullable String raceName) throws IOException {
+        Evaluation evaluation;
+        synchronized (this) {
+            requireElection();
+            evaluation = picked;
+        }
+        String name = raceName == null ? primaryRaceName : raceName;
+        Map<Race, Result> results = evaluation == null ? null : evaluation.results().join();
+        if (results == null || results.keySet().stream().noneMatch(race -> race.name().equalsIgnoreCase(name))) {
+            results = evaluate();
+        }
+        Map.Entry<Race, Result> entry = entryOf(results, raceName);
+        return Map.entry(entry.getKey(), (RunoffResult) entry.getValue()); // ranked choice races are counted as weighted runoffs
+    }
+
+    /**
+     * Evaluate a snapshot of the election on the calling thread, unless an evaluation of its current version
+     * has already started. Past vote weights apply to the first race.
+     */
+    private Evaluation evaluation() throws IOException {
+        return evaluation(Evaluator.getExecutor());
+    }
+
+    /** @see Session#evaluation(); with the races of a new evaluation evaluated concurrently on the given executor */
+    private Evaluation evaluation(@NotNull Executor executor) throws IOException {
+        Election<Vote> snapshot;
+        Evaluation evaluation;
+        synchronized (this) {
+            requireElection();
+            addUnspentVotes();
+            if (latest != null && latest.version() == election.getVersion()) {
+                return latest;
+            }
+            snapshot = election.snapshot();
+            evaluation = new Evaluation(snapshot.getVersion(), new CompletableFuture<>());
+            latest = evaluation;
+        }
+
+        Map<Race, Result> results;
+        try {
+            results = Evaluator.evaluateRankedChoice(snapshot, executor);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (latest == evaluation) {
+                    latest = null; // so that the next evaluation tries again
+                }
+            }
+            evaluation.results().completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            if (election.getVersion() == snapshot.getVersion()) { // answers from past versions would only replace newer ones
+                results.forEach((evaluated, result) -> replaceWhatIfVetoes(evaluated.name(), whatIfVetoes(evaluated, result)));
+            }
+        }
+        evaluation.results().complete(results);
+        return evaluation;
+    }
+
+    /** Add past vote weights of voters who have voted, only once each, so that the election is left unchanged if nobody new has voted */
+    private synchronized void addUnspentVotes() throws IOException {
+        Race race = race(null);
 
         Set<String> voters = election.getVotes(race, false)
                 .stream()
                 .map(v -> v.voterName)
                 .collect(Collectors.toSet());
-        loadUnspentVotes()
-                .stream()
+        if (unspentVotes == null) {
+            unspentVotes = loadUnspentVotes();
+        }
+        unspentVotes.stream()
                 .filter(v -> voters.contains(v.voterName))
+                .filter(v -> shadowedVoters.add(v.voterName))
                 .forEach(v -> election.addVote(race, v));
+    }
+
+    /** Evaluate in the background once the election has gone unchanged for a moment, replacing any evaluation still waiting */
+    private synchronized void scheduleEvaluation() {
+        if (pendingEvaluation != null) {
+            pendingEvaluation.cancel(false);
+        }
+        pendingEvaluation = backgroundEvaluator.schedule(() -> {
+            try {
+                evaluation(backgroundRaceEvaluator); // so that evaluating ahead of time doesn't crowd out picks
+            } catch (IOException | RuntimeException e) {
+                System.out.println("error evaluating in the background: " + e);
+                e.printStackTrace();
+            }
+        }, EVALUATION_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return the result of the named race, or the first race if none is named, among the results of one evaluation */
+    @NotNull
+    private Result resultOf(@NotNull Map<Race, Result> results, @Nullable String raceName) {
+        return entryOf(results, raceName).getValue();
+    }
+
+    /** @see Session#resultOf(Map, String); along with the race it's the result of */
+    @NotNull
+    private Map.Entry<Race, Result> entryOf(@NotNull Map<Race, Result> results, @Nullable String raceName) {
+        String name = raceName == null ? primaryRaceName : raceName;
+        return results.entrySet()
+                .stream()
+                .filter(entry -> entry.getKey().name().equalsIgnoreCase(name))
+                .findAny()
+                .orElseThrow(() -> new IllegalArgumentException("Race not found: " + name));
+    }
 
-        Map<Race, Result> results = Evaluator.evaluateRankedChoice(election);
+    /** Start working out, in the background, who would win the given race if each option were vetoed */
+    private WhatIfVetoes whatIfVetoes(@NotNull Race race) {
+        return new WhatIfVetoes(race, profile(race), Evaluator.rankedChoiceAlgorithm(), Evaluator.getExecutor());
+    }
 
-        outputResultsChart(results.get(race).getData());
+    /** @see Session#whatIfVetoes(Race); reusing the count of the given result, when it can */
+    private WhatIfVetoes whatIfVetoes(@NotNull Race race, @NotNull Result result) {
+        if (result instanceof RunoffResult evaluated) {
+            return new WhatIfVetoes(race, evaluated, Evaluator.rankedChoiceAlgorithm(), Evaluator.getExecutor());
+        }
+        return whatIfVetoes(race);
+    }
 
-        return results.get(race).getWinners();
+    /** Keep the given answers for the named race, and stop working out those they replace */
+    private synchronized void replaceWhatIfVetoes(@NotNull String raceName, @NotNull WhatIfVetoes whatIf) {
+        WhatIfVetoes replaced = whatIfVetoes.put(raceName, whatIf);
+        if (replaced != null) {
+            replaced.cancel();
+        }
     }
 
+    /** @return the ballots cast in the given race so far, which later votes don't change */
+    private synchronized BallotProfile<Vote> profile(@NotNull Race race) {
+        return BallotProfile.of(election.ballotSource(race));
+    }
+
+    /**
+     * An evaluation of every race
+     * @param version the election version evaluated
+     */
+    private record Evaluation(long version, @NotNull CompletableFuture<Map<Race, Result>> results) {}
+
     /**
-     * @param data the chart data to draw
-     * @param <T>
+     * Chart the flow of votes between rounds, if the result was traced
      * @throws IOException for errors during write of chart file
      */
-    private <T extends Comparable<T>> void outputResultsChart(@NotNull DefaultFlowDataset<T> data) throws IOException {
+    private void outputResultsChart(@NotNull Result result) throws IOException {
         DataUtils.writeFile(CHART_FILE_PATH, "");
 
+        DefaultFlowDataset<?> data = result.getData();
+        if (data == null) { return; }
+
         FlowPlot plot = new FlowPlot(data);
         JFreeChart chart = new JFreeChart(plot);
 
         ChartUtils.saveChartAsPNG(CHART_FILE_PATH.toFile(), chart, data.getStageCount()*150, 1300);
     }
 
-    public boolean setIncludeShadow(boolean includeShadow) { return election.setIncludeShadow(includeShadow); }
+    public synchronized boolean setIncludeShadow(boolean includeShadow) {
+        boolean included = election.setIncludeShadow(includeShadow);
+        scheduleEvaluation();
+        return included;
+    }
 
-    public boolean toggleIncludeShadow() { return election.toggleIncludeShadow(); }
+    public synchronized boolean toggleIncludeShadow() {
+        boolean included = election.toggleIncludeShadow();
+        scheduleEvaluation();
+        return included;
+    }
 
     private void requireElection() {
         if (election == null) throw new IllegalStateException("Start an election first");
     }
 
+    /** @return the named race, or the first race if none is named */
+    @NotNull
+    private synchronized Race race(@Nullable String raceName) {
+        requireElection();
+        String name = raceName == null ? primaryRaceName : raceName;
+        return findRace(name).orElseThrow(() -> new IllegalArgumentException("Race not found: " + name));
+    }
+
+    @NotNull
+    private Optional<Race> findRace(@NotNull String name) {
+        return election.getBallot().races()
+                .stream()
+                .filter(r -> r.name().equalsIgnoreCase(name))
+                .findAny();
+    }
+
     //endregion
 
     //region Voting
 
     /** @return the current vote cast by the given voter */
     @Nullable
-    public Vote getVote(@NotNull String voterName) {
-        requireElection();
+    public Vote getVote(@NotNull String voterName) { return getVote(voterName, null); }
 
-        return getUsersVote(voterName, election.getVotes(race, false));
+    /** @return the current vote cast by the given voter in the named race, or the first race if none is named */
+    @Nullable
+    public synchronized Vote getVote(@NotNull String voterName, @Nullable String raceName) {
+        return getUsersVote(voterName, election.getVotes(race(raceName), false));
     }
 
     /** Cast a vote */
-    public void addVote(@NotNull Vote vote) {
-        requireElection();
+    public void addVote(@NotNull Vote vote) { addVote(vote, null); }
+
+    /** Cast a vote in the named race, or the first race if none is named */
+    public synchronized void addVote(@NotNull Vote vote, @Nullable String raceName) {
+        Race race = race(raceName);
         vote = WeightedVote.fromVote(vote); // Force a weighting // FIXME don't force a weighting
         election.addVote(race, vote);
+        scheduleEvaluation();
     }
 
     /** Cast a vote on behalf of the given voter for the given list of candidates, in decreasing order of preference */
     public void addVote(@NotNull String voterName, @Nullable List<Option> orderedChoices) {
+        addVote(voterName, orderedChoices, null);
+    }
+
+    /** @see Session#addVote(String, List) */
+    public void addVote(@NotNull String voterName, @Nullable List<Option> orderedChoices, @Nullable String raceName) {
         SimpleRankingVote vote = new SimpleRankingVote(voterName);
         if (orderedChoices == null) orderedChoices = new ArrayList<>();
         vote.select(orderedChoices);
-        addVote(vote);
+        addVote(vote, raceName);
     }
 
     /** @see Session#addVote(String, List)  */
@@ -169,42 +568,55 @@ public class Session { // TODO threading considerations
     }
 
     public void rate(@NotNull String voterName, @NotNull Option option, int rating) {
-        requireElection();
+        rate(voterName, option, rating, null);
+    }
 
-        if (!race.options().contains(option)) {
+    /** Rate a candidate in the named race, or the first race if none is named */
+    public synchronized void rate(@NotNull String voterName, @NotNull Option option, int rating, @Nullable String raceName) {
+        if (!race(raceName).options().contains(option)) {
             throw new IllegalArgumentException("Option not recognized");
         }
 
-        Vote vote = getVote(voterName);
-        if (vote == null || !(vote instanceof WeightedVote)) {
-            vote = new WeightedVote(voterName);
-        }
-        ((WeightedVote) vote).rate(option, (double) rating);
+        Vote current = getVote(voterName, raceName);
+        // change a copy, since evaluations may still be reading the vote cast
+        WeightedVote vote = current instanceof WeightedVote weighted ? weighted.clone() : new WeightedVote(voterName);
+        vote.rate(option, (double) rating);
 
-        addVote(vote);
+        addVote(vote, raceName);
     }
 
     /** @return true iff the voter is now currently vetoing the given option after this returns */
-    public boolean veto(@NotNull String voterName, @NotNull Option option) {
-        requireElection();
+    public boolean veto(@NotNull String voterName, @NotNull Option option) { return veto(voterName, option, null); }
 
-        Vote vote = getVote(voterName);
-        if (vote == null) {
+    /** @see Session#veto(String, Option) */
+    public synchronized boolean veto(@NotNull String voterName, @NotNull Option option, @Nullable String raceName) {
+        Vote current = getVote(voterName, raceName);
+        WeightedVote vote; // a copy, since evaluations may still be reading the vote cast
+        if (current == null) {
             vote = new WeightedVote(voterName);
+        } else if (current instanceof WeightedVote weighted) {
+            vote = weighted.clone();
+        } else {
+            vote = WeightedVote.fromVote(current);
         }
-        addVote(vote);
+        boolean vetoed = vote.vetoToggle(option);
+        addVote(vote, raceName);
 
-        return vote.vetoToggle(option);
+        return vetoed;
     }
 
-    /** Clear the voter's current vote in this election. This is irreversible. */
-    public void clearCurrentVote(@NotNull String voterName) {
+    /** Clear the voter's current vote in every race of this election. This is irreversible. */
+    public synchronized void clearCurrentVote(@NotNull String voterName) {
         requireElection();
 
-        election.getVotes(race)
-                .stream()
-                .filter(v -> v.voterName.equals(voterName)) // vote and shadow vote
-                .forEach(v -> election.removeVote(race, v));
+        for (Race race : election.getBallot().races()) {
+            election.getVotes(race)
+                    .stream()
+                    .filter(v -> v.voterName.equals(voterName)) // vote and shadow vote
+                    .forEach(v -> election.removeVote(race, v));
+        }
+        shadowedVoters.remove(voterName);
+        scheduleEvaluation();
     }
 
     //endregion
@@ -227,9 +639,13 @@ public class Session { // TODO threading considerations
     public void loadDefaultVote(@NotNull String voterName) throws IOException {
         requireElection();
 
-        List<Vote> recordedVotes = DataUtils.deserializeFile(VOTES_FILE_PATH, DataUtils::deserializeVote);
-
-        Vote vote = getUsersVote(voterName, recordedVotes);
+        Vote vote = null;
+        try (VoteFileSource.VoteIterator<Vote> recordedVotes = VoteFileSource.of(VOTES_FILE_PATH).open()) { // stops reading once found
+            while (vote == null && recordedVotes.hasNext()) {
+                Vote recorded = recordedVotes.next();
+                if (recorded.voterName.equals(voterName)) vote = recorded;
+            }
+        }
         if (vote == null) {
             throw new RuntimeException("Vote not found for " + voterName);
         }
@@ -265,12 +681,14 @@ public class Session { // TODO threading considerations
      * @param winner The option that won the most recent {@link Race race}
      * @throws IOException for errors during read/write of unspent file
      */
-    public void recordUnspentVotes(@NotNull Option winner) throws IOException {
-        Set<WeightedVote> unspentVotes = election.getVotes(race, false)
+    public synchronized void recordUnspentVotes(@NotNull Option winner) throws IOException {
+        Set<WeightedVote> unspentVotes = election.getVotes(race(null), false)
                 .stream()
                 .map(v -> WeightedVote.unspentWeight(v, winner))
                 .collect(Collectors.toSet());
         updateUnspentVotes(unspentVotes, winner);
+        shadowedVoters.clear(); // past vote weights have changed
+        this.unspentVotes = null; // read them again
     }
 
     /**
@@ -0,0 +1,118 @@
+package main;
+
+import model.BallotSource;
+import model.vote.Vote;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * A {@link BallotSource} that streams votes from a file with one serialized vote per line,
+ * as written by {@link DataUtils#serializeItems(java.util.Collection)}.
+ * Each pass re-reads the file, so only one vote is held in memory at a time.
+ * <br>
+ * The file is closed when a pass reaches its end, or fails to read it;
+ * a pass {@link VoteFileSource#open() opened} to be abandoned early should be closed.
+ *
+ * @param <V> the type of vote
+ */
+public class VoteFileSource<V extends Vote> implements BallotSource<V> {
+
+    private final Path filepath;
+    private final Function<String, V> deserializer;
+
+    /** @param deserializer for interpreting each line of the given file; lines deserialized to <code>null</code> are skipped */
+    public VoteFileSource(@NotNull Path filepath, @NotNull Function<String, V> deserializer) {
+        this.filepath = filepath;
+        this.deserializer = deserializer;
+    }
+
+    /** @return a source of votes of any type, deserialized by {@link DataUtils#deserializeVote(String)} */
+    public static VoteFileSource<Vote> of(@NotNull Path filepath) {
+        return new VoteFileSource<>(filepath, DataUtils::deserializeVote);
+    }
+
+    @Override
+    public boolean isStreaming() { return true; }
+
+    @NotNull
+    @Override
+    public Iterator<V> iterator() {
+        try {
+            return open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening vote file " + filepath, e);
+        }
+    }
+
+    /** Begin a pass over the file, to be closed by the caller if it stops before the end */
+    @NotNull
+    public VoteIterator<V> open() throws IOException {
+        return new VoteIterator<>(filepath, Files.newBufferedReader(filepath), deserializer);
+    }
+
+    /** A pass over the votes of a file, holding it open until the pass ends or is closed */
+    public static class VoteIterator<V extends Vote> implements Iterator<V>, Closeable {
+        private final Path filepath;
+        private final BufferedReader reader;
+        private final Function<String, V> deserializer;
+        private V next;
+
+        private VoteIterator(Path filepath, BufferedReader reader, Function<String, V> deserializer) {
+            this.filepath = filepath;
+            this.reader = reader;
+            this.deserializer = deserializer;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() { return next != null; }
+
+        @Override
+        public V next() {
+            if (next == null) throw new NoSuchElementException();
+            V vote = next;
+            advance();
+            return vote;
+        }
+
+        @Override
+        public void close() throws IOException {
+            next = null;
+            reader.close();
+        }
+
+        private void advance() {
+            boolean ended = true;
+            try {
+                next = null;
+                String line;
+                while (next == null && (line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    next = deserializer.apply(line);
+                }
+                ended = next == null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading vote file " + filepath, e);
+            } finally {
+                if (ended) { // reached the end, or failed to read or deserialize a line
+                    closeQuietly();
+                }
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                close();
+            } catch (IOException ignored) {} // nothing more is read from it either way
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package model;
+
+import model.vote.RankedVote;
+import model.vote.Vote;
+import model.vote.WeightedVote;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * A collection of votes, with identical ballots collapsed into a single weighted entry.
+ * <br>
+ * Ballots are identical when they are the same kind of vote, are both shadow or both not,
+ * veto the same options, and express the same preferences: the same rankings,
+ * the same single choice, or the same ratings once normalized to sum to <code>1.0</code>.
+ * Shadow votes are compared by raw rating, since their raw ratings are what get counted.
+ * <br>
+ * Algorithms can then evaluate each distinct ballot once, weighted by its multiplicity,
+ * so that evaluation cost scales with the number of distinct ballots rather than voters.
+ *
+ * @param <V> the type of vote
+ */
+public class BallotProfile<V extends Vote> implements Iterable<BallotProfile.Entry<V>> {
+
+    private final List<Entry<V>> entries;
+    private final int voters;
+
+    private BallotProfile(List<Entry<V>> entries, int voters) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.voters = voters;
+    }
+
+    /** Group identical ballots; the first of each group is kept to represent the others */
+    public static <V extends Vote> BallotProfile<V> of(@NotNull Iterable<? extends V> votes) {
+        Map<Object, Integer> positions = new HashMap<>();
+        List<V> ballots = new ArrayList<>();
+        List<Integer> multiplicities = new ArrayList<>();
+        int voters = 0;
+        for (V vote : votes) {
+            voters++;
+            Integer position = positions.putIfAbsent(canonicalize(vote), ballots.size());
+            if (position == null) {
+                ballots.add(vote);
+                multiplicities.add(1);
+            } else {
+                multiplicities.set(position, multiplicities.get(position) + 1);
+            }
+        }
+
+        List<Entry<V>> entries = new ArrayList<>(ballots.size());
+        for (int i = 0; i < ballots.size(); i++) {
+            entries.add(new Entry<>(ballots.get(i), multiplicities.get(i)));
+        }
+        return new BallotProfile<>(entries, voters);
+    }
+
+    /**
+     * @param multiplicities the number of copies of each distinct ballot, in order of {@link BallotProfile#entries()}
+     * @return a profile of the same ballots, cast the given number of times; ballots with no copies are left out
+     */
+    public BallotProfile<V> withMultiplicities(@NotNull int[] multiplicities) {
+        if (multiplicities.length != entries.size()) {
+            throw new IllegalArgumentException("Expected a multiplicity for each of " + entries.size() + " ballots");
+        }
+        List<Entry<V>> reweighted = new ArrayList<>();
+        int voters = 0;
+        for (int i = 0; i < multiplicities.length; i++) {
+            if (multiplicities[i] > 0) {
+                reweighted.add(new Entry<>(entries.get(i).ballot(), multiplicities[i]));
+                voters += multiplicities[i];
+            }
+        }
+        return new BallotProfile<>(reweighted, voters);
+    }
+
+    /** @return a profile of these ballots, along with the given number of copies of another ballot */
+    public BallotProfile<V> plus(@NotNull V ballot, int multiplicity) {
+        if (multiplicity < 1) {
+            throw new IllegalArgumentException("Multiplicity must be positive");
+        }
+        List<Entry<V>> extended = new ArrayList<>(entries);
+        extended.add(new Entry<>(ballot, multiplicity));
+        return new BallotProfile<>(extended, voters + multiplicity);
+    }
+
+    /** @return the number of distinct ballots */
+    public int size() { return entries.size(); }
+
+    /** @return the total number of votes, counting every copy of each ballot */
+    public int voters() { return voters; }
+
+    public List<Entry<V>> entries() { return entries; }
+
+    @NotNull
+    @Override
+    public Iterator<Entry<V>> iterator() { return entries.iterator(); }
+
+    @Override
+    public Spliterator<Entry<V>> spliterator() { return entries.spliterator(); }
+
+    private static Object canonicalize(Vote vote) {
+        Object preferences;
+        if (vote instanceof WeightedVote weightedVote) {
+            Map<Option, Double> ratings = new HashMap<>();
+            List<Option> rated = weightedVote.getRankings();
+            double sum = 0.0;
+            for (Option option : rated) {
+                sum += Math.abs(weightedVote.getRawRating(option));
+            }
+            for (Option option : rated) {
+                double rating = weightedVote.getRawRating(option);
+                ratings.put(option, vote.isShadow() || sum == 0.0 ? rating : rating / sum);
+            }
+            preferences = ratings;
+        } else if (vote instanceof RankedVote rankedVote) {
+            preferences = rankedVote.getRankings();
+        } else {
+            preferences = Optional.ofNullable(vote.toSingleVote().getVote());
+        }
+        return new CanonicalBallot(vote.getClass(), vote.isShadow(), Set.copyOf(vote.getVetoes()), preferences);
+    }
+
+    private record CanonicalBallot(Class<?> type, boolean shadow, Set<Option> vetoes, Object preferences) {}
+
+    /**
+     * @param ballot a vote representing every identical ballot
+     * @param multiplicity the number of votes cast with this ballot
+     */
+    public record Entry<V extends Vote>(@NotNull V ballot, int multiplicity) {}
+}
@@ -0,0 +1,26 @@
+package model;
+
+import model.vote.Vote;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * A re-iterable source of ballots. Each call to {@link BallotSource#iterator()} begins a new pass over every ballot.
+ * <br>
+ * A streaming source reads its ballots anew on each pass, e.g. from a file,
+ * so that algorithms that only need a few passes can evaluate it in constant memory.
+ *
+ * @param <V> the type of vote
+ */
+@FunctionalInterface
+public interface BallotSource<V extends Vote> extends Iterable<V> {
+
+    /** @return <code>true</code> if ballots are read anew on each pass, rather than held in memory */
+    default boolean isStreaming() { return false; }
+
+    /** @return a source iterating over the given votes in memory */
+    static <V extends Vote> BallotSource<V> of(@NotNull Collection<? extends V> votes) {
+        return () -> votes.stream().<V>map(v -> v).iterator();
+    }
+}
@@ -5,31 +5,69 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class Election<V extends Vote> {
 
+	// Shared by every election, so that no two elections are ever at the same version
+	private static final AtomicLong VERSIONS = new AtomicLong();
+
+	private volatile long version = VERSIONS.incrementAndGet();
 	private Ballot ballot;
 	private Map<Race, Set<V>> votes;
+	private Map<Race, LiveStandings> liveStandings;
 	private boolean includeShadow;
 
 	public Election(Ballot ballot) {
 		this.ballot = ballot;
 		this.votes = new HashMap<>();
+		this.liveStandings = new HashMap<>();
 		this.includeShadow = true;
 		for (Race race : ballot.races()) {
 			votes.put(race, new HashSet<>());
+			liveStandings.put(race, new LiveStandings());
 		}
 	}
 
 	public Ballot getBallot() { return this.ballot; }
 
+	/**
+	 * The version changes whenever a vote, race, or past vote setting changes,
+	 * and is never reused, even by another election.
+	 * Results evaluated at the same version are the same.
+	 * @return the current version of this election
+	 */
+	public long getVersion() { return version; }
+
+	/**
+	 * The snapshot is at the same version, and so evaluates to the same results, but doesn't keep live standings.
+	 * Votes aren't copied, so a vote must never be changed in place once cast;
+	 * cast a changed copy instead, which moves this election to a new version.
+	 * @return a copy of this election whose votes can be read while this election changes
+	 */
+	public Election<V> snapshot() {
+		Election<V> snapshot = new Election<>(ballot);
+		for (Race race : ballot.races()) {
+			snapshot.votes.put(race, new HashSet<>(votes.get(race)));
+		}
+		snapshot.includeShadow = includeShadow;
+		snapshot.version = version;
+		return snapshot;
+	}
+
+	private void bumpVersion() {
+		version = VERSIONS.incrementAndGet();
+	}
+
 	public void updateRace(@NotNull Race race, @NotNull Race newRace) {
 		Set<V> oldVotes = votes.get(race);
 		votes.remove(race);
 		votes.put(newRace, oldVotes);
+		liveStandings.put(newRace, liveStandings.remove(race));
 
 		Set<Race> oldRaces = new HashSet<>(ballot.races());
 		if (!oldRaces.remove(race)) {
@@ -37,12 +75,28 @@ public class Election<V extends Vote> {
 		}
 		oldRaces.add(newRace);
 		ballot = new Ballot(ballot.name(), oldRaces);
+		bumpVersion();
+	}
+
+	/** Add a new race to this election's ballot */
+	public void addRace(@NotNull Race race) {
+		if (ballot.races().contains(race)) {
+			throw new IllegalArgumentException("Race already appears on this ballot");
+		}
+		Set<Race> races = new HashSet<>(ballot.races());
+		races.add(race);
+		ballot = new Ballot(ballot.name(), races);
+		votes.put(race, new HashSet<>());
+		liveStandings.put(race, new LiveStandings());
+		bumpVersion();
 	}
 
 	public void addVote(Race race, V vote) {
 		requireRace(race);
 		this.votes.get(race).remove(vote);
 		this.votes.get(race).add(vote);
+		this.liveStandings.get(race).add(vote);
+		bumpVersion();
 	}
 
 	public Set<V> getVotes(Race race) {
@@ -56,19 +110,52 @@ public class Election<V extends Vote> {
 				.collect(Collectors.toSet());
 	}
 
+	/**
+	 * Unlike {@link Election#getVotes(Race)}, this doesn't copy the votes.
+	 * @return a live view of the votes cast in the given race
+	 */
+	public BallotSource<V> ballotSource(Race race) {
+		return ballotSource(race, this.includeShadow);
+	}
+	public BallotSource<V> ballotSource(Race race, boolean includingShadow) {
+		requireRace(race);
+		Set<V> raceVotes = votes.get(race);
+		return () -> raceVotes
+				.stream()
+				.filter(v -> (includingShadow || !v.isShadow()))
+				.iterator();
+	}
+
 	public boolean removeVote(Race race, V vote) {
 		requireRace(race);
-		return votes.get(race).remove(vote);
+		liveStandings.get(race).remove(vote);
+		boolean removed = votes.get(race).remove(vote);
+		if (removed) {
+			bumpVersion();
+		}
+		return removed;
+	}
+
+	/**
+	 * Read from counters kept up to date as votes are cast, without evaluating the race.
+	 * Shadow votes are never included.
+	 * @return the current standing of each option in the given race
+	 */
+	public List<LiveStandings.Standing> getLiveStandings(Race race) {
+		requireRace(race);
+		return liveStandings.get(race).standings(race.options());
 	}
 
 	public boolean setIncludeShadow(boolean includeShadow) {
-		this.includeShadow = includeShadow;
+		if (this.includeShadow != includeShadow) {
+			this.includeShadow = includeShadow;
+			bumpVersion();
+		}
 		return this.includeShadow;
 	}
 
 	public boolean toggleIncludeShadow() {
-		includeShadow = !this.includeShadow;
-		return includeShadow;
+		return setIncludeShadow(!this.includeShadow);
 	}
 
 	private void requireRace(Race race) {
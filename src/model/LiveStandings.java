@@ -0,0 +1,117 @@
+package model;
+
+import model.vote.Vote;
+import model.vote.WeightedVote;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running per-option counters for a {@link Race}, updated as votes are cast and withdrawn,
+ * so that current standings can be read without evaluating the election.
+ * <br>
+ * Each vote's contribution is recorded when it is added, and exactly that contribution is withdrawn
+ * when it is removed or replaced, even if the vote object has been modified in the meantime.
+ * Shadow votes are not counted.
+ */
+public class LiveStandings {
+
+    private final ConcurrentMap<Option, OptionCounters> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Vote, Contribution> contributions = new ConcurrentHashMap<>();
+
+    /** Count the given vote, replacing any previously counted equal vote */
+    public void add(@NotNull Vote vote) {
+        if (vote.isShadow()) return;
+        Contribution contribution = Contribution.of(vote);
+        Contribution previous = contributions.put(vote, contribution);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(contribution, +1);
+    }
+
+    public void remove(@NotNull Vote vote) {
+        Contribution previous = contributions.remove(vote);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+    }
+
+    /**
+     * @return the current standing of each of the given options,
+     * sorted by first-choice votes, then by mean rating
+     */
+    public List<Standing> standings(@NotNull Collection<Option> options) {
+        List<Standing> standings = new ArrayList<>(options.size());
+        for (Option option : options) {
+            OptionCounters counter = counters.get(option);
+            standings.add(counter == null ? new Standing(option, 0, 0, 0.0, 0) : counter.standing(option));
+        }
+        standings.sort(Comparator.comparingLong(Standing::firstChoices)
+                .thenComparingDouble(Standing::meanRating)
+                .reversed()
+                .thenComparing(standing -> standing.option().name()));
+        return standings;
+    }
+
+    private void apply(Contribution contribution, int sign) {
+        if (contribution.firstChoice != null) {
+            counter(contribution.firstChoice).firstChoices.add(sign);
+        }
+        for (Map.Entry<Option, Double> rating : contribution.ratings.entrySet()) {
+            OptionCounters counter = counter(rating.getKey());
+            counter.ratingSum.add(sign * rating.getValue());
+            counter.ratings.add(sign);
+        }
+        for (Option veto : contribution.vetoes) {
+            counter(veto).vetoes.add(sign);
+        }
+    }
+
+    private OptionCounters counter(Option option) {
+        return counters.computeIfAbsent(option, o -> new OptionCounters());
+    }
+
+    /**
+     * @param firstChoices the number of votes ranking this option first
+     * @param ratings the number of votes rating this option
+     * @param meanRating the mean raw rating of this option, among votes that rated it
+     * @param vetoes the number of votes vetoing this option
+     */
+    public record Standing(@NotNull Option option, long firstChoices, long ratings, double meanRating, long vetoes) {}
+
+    private static class OptionCounters {
+        private final LongAdder firstChoices = new LongAdder();
+        private final LongAdder ratings = new LongAdder();
+        private final DoubleAdder ratingSum = new DoubleAdder();
+        private final LongAdder vetoes = new LongAdder();
+
+        Standing standing(Option option) {
+            long count = ratings.sum();
+            double mean = count == 0 ? 0.0 : ratingSum.sum() / count;
+            return new Standing(option, firstChoices.sum(), count, mean, vetoes.sum());
+        }
+    }
+
+    // What a vote added to the counters, as of when it was counted
+    private record Contribution(Option firstChoice, Map<Option, Double> ratings, Set<Option> vetoes) {
+        static Contribution of(Vote vote) {
+            Map<Option, Double> ratings = new HashMap<>();
+            Option firstChoice;
+            if (vote instanceof WeightedVote weightedVote) {
+                List<Option> rankings = weightedVote.getRankings();
+                for (Option option : rankings) {
+                    ratings.put(option, weightedVote.getRawRating(option));
+                }
+                firstChoice = rankings.isEmpty() ? null : rankings.get(0);
+            } else {
+                firstChoice = vote.toSingleVote().getVote();
+            }
+            return new Contribution(firstChoice, ratings, Set.copyOf(vote.getVetoes()));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Interns a set of {@link Option options} as dense integer ids, from <code>0</code> to <code>size()-1</code>,
+ * so that per-option state can be kept in primitive arrays and {@link BitSet bit sets}.
+ * <br>
+ * Ids are assigned in order of option name, so equal sets of options are always indexed the same way.
+ */
+public class OptionIndex {
+
+    private final Option[] options;
+    private final Map<Option, Integer> ids;
+
+    public OptionIndex(@NotNull Race race) {
+        this(race.options());
+    }
+
+    public OptionIndex(@NotNull Collection<Option> options) {
+        this.options = options.stream()
+                .distinct()
+                .sorted(Comparator.comparing(Option::name))
+                .toArray(Option[]::new);
+        this.ids = new HashMap<>();
+        for (int id = 0; id < this.options.length; id++) {
+            ids.put(this.options[id], id);
+        }
+    }
+
+    public int size() { return options.length; }
+
+    /** @return the id of the given option, or <code>-1</code> if it isn't indexed */
+    public int indexOf(Option option) {
+        Integer id = ids.get(option);
+        return id == null ? -1 : id;
+    }
+
+    public Option option(int id) { return options[id]; }
+
+    /** @return every indexed option, in order of id */
+    public List<Option> options() { return List.of(options); }
+
+    /** @return the ids of the given options; options that aren't indexed are skipped */
+    public BitSet idsOf(@NotNull Collection<Option> options) {
+        BitSet set = new BitSet(size());
+        for (Option option : options) {
+            int id = indexOf(option);
+            if (id >= 0) {
+                set.set(id);
+            }
+        }
+        return set;
+    }
+
+    /** @return the options with the given ids */
+    public Set<Option> optionsOf(@NotNull BitSet set) {
+        Set<Option> result = new HashSet<>();
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+            result.add(options[id]);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OptionIndex other)) return false;
+        return Arrays.equals(options, other.options);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(options);
+    }
+}
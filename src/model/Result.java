@@ -7,14 +7,24 @@ import java.util.Set;
 
 public class Result {
     private Set<Option> winners;
-    private DefaultFlowDataset data;
+    private DefaultFlowDataset<?> data;
+    private boolean exact;
 
-    public Result(Set<Option> winners, DefaultFlowDataset data) {
+    public Result(Set<Option> winners, DefaultFlowDataset<?> data) {
+        this(winners, data, true);
+    }
+
+    /** @param exact whether evaluation finished, rather than settling for the best winners found before it was cancelled */
+    public Result(Set<Option> winners, DefaultFlowDataset<?> data, boolean exact) {
         this.winners = winners;
         this.data = data;
+        this.exact = exact;
     }
 
     public Set<Option> getWinners() { return new HashSet<>(winners); }
 
-    public DefaultFlowDataset getData() { return data; }
+    public DefaultFlowDataset<?> getData() { return data; }
+
+    /** @return <code>false</code> if these are provisional winners, which a full evaluation might change */
+    public boolean isExact() { return exact; }
 }
@@ -0,0 +1,103 @@
+package model.vote;
+
+import model.Option;
+import model.OptionIndex;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * The ratings of a {@link WeightedVote}, aligned to the ids of an {@link OptionIndex},
+ * for normalizing across a shrinking set of active options.
+ * <br>
+ * The sum of the absolute values of the active ratings is kept as options are deactivated,
+ * so a normalized rating is a single division, and deactivating an option is a single subtraction.
+ * <br>
+ * Rated options are kept in order of id, and addressed by their position in that order.
+ */
+public final class RatingVector {
+
+    private final int[] ids;
+    private final double[] ratings;
+    private final boolean[] active;
+    private int activeCount;
+    private double activeSum; // sum of the absolute values of the active ratings
+
+    private RatingVector(int[] ids, double[] ratings) {
+        this.ids = ids;
+        this.ratings = ratings;
+        this.active = new boolean[ids.length];
+        Arrays.fill(active, true);
+        this.activeCount = ids.length;
+        for (double rating : ratings) {
+            activeSum += Math.abs(rating);
+        }
+    }
+
+    /** @see WeightedVote#toRatingVector(OptionIndex) */
+    static RatingVector of(@NotNull Map<Option, Double> votedRatings, @NotNull OptionIndex index) {
+        int[] ids = new int[votedRatings.size()];
+        int size = 0;
+        for (Option option : votedRatings.keySet()) {
+            int id = index.indexOf(option);
+            if (id >= 0) {
+                ids[size++] = id;
+            }
+        }
+        ids = Arrays.copyOf(ids, size);
+        Arrays.sort(ids);
+
+        double[] ratings = new double[size];
+        for (int position = 0; position < size; position++) {
+            ratings[position] = votedRatings.get(index.option(ids[position]));
+        }
+        return new RatingVector(ids, ratings);
+    }
+
+    /** @return the number of rated options */
+    public int size() { return ids.length; }
+
+    /** @return the id of the rated option at the given position */
+    public int id(int position) { return ids[position]; }
+
+    /** @return the position of the given option id, or <code>-1</code> if it wasn't rated */
+    public int positionOf(int id) {
+        int position = Arrays.binarySearch(ids, id);
+        return position < 0 ? -1 : position;
+    }
+
+    public double rating(int position) { return ratings[position]; }
+
+    public boolean isActive(int position) { return active[position]; }
+
+    /** @return the rating at the given position, divided by the sum of the absolute values of the active ratings */
+    public double normalized(int position) { return ratings[position] / activeSum; }
+
+    /** Deactivate every rated option whose id isn't in the given set */
+    public void retain(@NotNull BitSet ids) {
+        for (int position = 0; position < this.ids.length; position++) {
+            if (!ids.get(this.ids[position])) {
+                deactivateAt(position);
+            }
+        }
+    }
+
+    /** @return true iff the given option id was rated and active */
+    public boolean deactivate(int id) {
+        int position = positionOf(id);
+        return position >= 0 && deactivateAt(position);
+    }
+
+    private boolean deactivateAt(int position) {
+        if (!active[position]) { return false; }
+        active[position] = false;
+        if (--activeCount == 0) {
+            activeSum = 0.0; // drop any rounding left from subtracting
+        } else {
+            activeSum -= Math.abs(ratings[position]);
+        }
+        return true;
+    }
+}
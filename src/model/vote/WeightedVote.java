@@ -3,6 +3,7 @@ package model.vote;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import model.Option;
+import model.OptionIndex;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
@@ -29,6 +30,8 @@ public class WeightedVote extends RankedVote implements Cloneable {
     public WeightedVote clone() {
         WeightedVote clone = new WeightedVote(this.voterName);
         clone.ratings = new HashMap<>(this.ratings);
+        clone.vetoes = new HashSet<>(this.vetoes);
+        clone.shadow = this.shadow;
         clone.normalizeAcross(this.filter); // preserve current normalization state
         return clone;
     }
@@ -61,6 +64,14 @@ public class WeightedVote extends RankedVote implements Cloneable {
         return normalizedRatings.get(option);
     }
 
+    /**
+     * @return this vote's raw ratings of the indexed options, with every rated option active.
+     * The vector doesn't change with this vote.
+     */
+    public RatingVector toRatingVector(@NotNull OptionIndex index) {
+        return RatingVector.of(ratings, index);
+    }
+
     public void normalizeAcross(@NotNull Set<Option> options) {
         filter = options;
         normalizedUpdated = false;